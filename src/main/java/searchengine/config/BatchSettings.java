@@ -0,0 +1,22 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/** Класс настроек пакетной записи лемм и индексов из файла настроек */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.batch")
+public class BatchSettings {
+    /** Количество страниц, леммы и индексы которых накапливаются в памяти перед записью в базу */
+    private int size = 100;
+    /** Максимальное время хранения незаписанного пакета */
+    private Duration flushInterval = Duration.ofSeconds(10);
+    /** Через какое количество записанных пакетов накопленные частоты лемм записываются в базу */
+    private int frequencyCheckpoint = 10;
+}
@@ -0,0 +1,26 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/** Класс настроек обхода сайтов из файла настроек */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.crawl")
+public class CrawlSettings {
+    /** Емкость очереди загруженных страниц между обходом сайта и записью в базу */
+    private int queueCapacity = 500;
+    /** Максимальное количество запросов к одному хосту в секунду */
+    private double requestsPerSecond = 2;
+    /** Максимальное количество одновременных соединений с одним хостом */
+    private int maxConnections = 4;
+    /** Максимальная глубина обхода от главной страницы */
+    private int maxDepth = 50;
+    /** Максимальное количество страниц одного сайта */
+    private int maxPagesPerSite = 1_000_000;
+    /** Обходить ли ссылки с параметрами запроса; при false такие ссылки пропускаются */
+    private boolean keepQuery = false;
+}
@@ -0,0 +1,26 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/** Класс настроек загрузки страниц из файла настроек */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.fetcher")
+public class FetcherSettings {
+    /** Время ожидания установки соединения */
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    /** Время ожидания ответа на запрос */
+    private Duration requestTimeout = Duration.ofSeconds(30);
+    /** Максимальный размер загружаемой страницы: у страницы большего размера используются только ссылки
+     * из ее начала, содержимое не сохраняется и не индексируется */
+    private DataSize maxBodySize = DataSize.ofMegabytes(5);
+    private String userAgent = "Mozilla/5.0 (Windows; U; WindowsNT 5.1; en-US; rv1.8.1.6) Gecko/20070725 Firefox/2.0.0.6";
+    private String referrer = "http://www.google.com";
+}
@@ -0,0 +1,21 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/** Класс настроек весов полей страницы при индексации из файла настроек. Веса учитываются в рангах лемм
+ * при индексации, после их изменения сайты нужно переиндексировать */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.fields")
+public class IndexFieldSettings {
+    /** Вес вхождения слова в заголовок страницы (title) */
+    private float titleBoost = 2;
+    /** Вес вхождения слова в подзаголовок h1-h6; добавляется к вхождению в текст, частью которого является подзаголовок */
+    private float headingBoost = 1;
+    /** Вес вхождения слова в текст страницы */
+    private float bodyBoost = 1;
+}
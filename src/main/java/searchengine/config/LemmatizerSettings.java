@@ -0,0 +1,23 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/** Класс настроек лемматизатора из файла настроек */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "lemmatizer-settings")
+public class LemmatizerSettings {
+    /** Максимальное количество словоформ в кэше лемматизатора */
+    private long cacheSize = 100_000;
+    /** Разбирать ли слова латиницей английской морфологией; при false лемма такого слова - само слово */
+    private boolean english = true;
+    /** Количество потоков пула лемматизации страниц при индексации; 0 - по количеству ядер процессора */
+    private int threads = 0;
+    /** Максимальное количество страниц одного сайта, ожидающих лемматизации или записи в базу;
+     * при заполнении обход сайта приостанавливается */
+    private int maxPagesInFlight = 64;
+}
@@ -0,0 +1,22 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/** Класс настроек планировщика индексации из файла настроек */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.scheduler")
+public class SchedulerSettings {
+    /** Количество потоков общего пула записи страниц всех сайтов; 0 - по количеству ядер процессора */
+    private int workerThreads = 0;
+    /** Количество страниц сайта, записываемых за одну задачу перед переходом к следующему сайту */
+    private int sliceSize = 50;
+    /** Пауза перед повторной проверкой очереди сайта, в которой нет загруженных страниц */
+    private Duration idleDelay = Duration.ofMillis(100);
+}
@@ -0,0 +1,50 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/** Класс настроек поиска из файла настроек */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-settings")
+public class SearchSettings {
+    /** Механизм поиска: database - запросом к MySQL, memory - по инвертированному индексу в памяти */
+    private String backend = "database";
+    /** Каталог файлов сегментов инвертированного индекса */
+    private String indexPath = "index";
+    /** Количество сегментов сайта, при превышении которого сегменты сливаются в один */
+    private int maxSegmentsPerSite = 8;
+    /** Функция ранжирования по умолчанию: bm25, tfidf либо rank (сумма рангов лемм) */
+    private String ranking = "bm25";
+    /** Насыщение частоты слова в BM25 */
+    private float bm25K1 = 1.2f;
+    /** Степень нормализации по длине страницы в BM25 */
+    private float bm25B = 0.75f;
+    /** Наибольшая доля страниц сайта в процентах, на которой может встречаться слово запроса;
+     * более частые слова не участвуют в отборе и ранжировании страниц этого сайта */
+    private double maxLemmaFrequencyPercent = 80;
+    /** Количество найденных страниц сайта, до которого оно считается точно; после него механизм поиска
+     * отсекает страницы, не попадающие в лучшие, и количество становится нижней оценкой */
+    private int exactCountThreshold = 1000;
+    /** Вес близости слов запроса на странице: релевантность страницы, на которой слова идут подряд,
+     * увеличивается в 1 + proximity-weight раз */
+    private float proximityWeight = 0.5f;
+    /** Количество лучших страниц запроса без позиционных условий, переоцениваемых по близости слов */
+    private int proximityWindow = 100;
+    /** Количество потоков поиска по сайтам: каждый сайт обрабатывается отдельной задачей */
+    private int shardThreads = 8;
+    /** Время ожидания результатов сайта; сайты, не ответившие вовремя, в ответ не попадают */
+    private Duration shardTimeout = Duration.ofSeconds(5);
+    /** Количество потоков выполнения запросов поиска, освобождающих потоки веб-сервера */
+    private int requestThreads = 16;
+    /** Количество запросов поиска, ожидающих свободного потока; при переполнении запрос отклоняется */
+    private int requestQueueCapacity = 200;
+    /** Наибольший суммарный объем ответов в кэше результатов поиска */
+    private DataSize resultCacheSize = DataSize.ofMegabytes(64);
+}
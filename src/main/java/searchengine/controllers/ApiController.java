@@ -2,16 +2,27 @@ package searchengine.controllers;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import searchengine.dto.index.IndexResponse;
+import searchengine.dto.search.RankingParameters;
+import searchengine.dto.search.SearchCountEvent;
+import searchengine.dto.search.SearchData;
 import searchengine.dto.search.SearchResponse;
+import searchengine.dto.search.SearchResponseError;
 import searchengine.dto.statistics.StatisticsResponse;
+import searchengine.services.AsyncSearchService;
 import searchengine.services.IndexingService;
-import searchengine.services.SearchService;
+import searchengine.services.SearchResultListener;
 import searchengine.services.StatisticsService;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /** Контроллер для работы с API */
 @RestController
@@ -21,12 +32,13 @@ public class ApiController<StopIndexingService> {
 
     private final StatisticsService statisticsService;
     private final IndexingService indexingService;
-    private final SearchService searchService;
+    private final AsyncSearchService asyncSearchService;
 
-    public ApiController(StatisticsService statisticsService, IndexingService indexingService, SearchService searchService) {
+    public ApiController(StatisticsService statisticsService, IndexingService indexingService,
+                         AsyncSearchService asyncSearchService) {
         this.statisticsService = statisticsService;
         this.indexingService = indexingService;
-        this.searchService = searchService;
+        this.asyncSearchService = asyncSearchService;
     }
 
     /** Получение статистики */
@@ -35,13 +47,14 @@ public class ApiController<StopIndexingService> {
         return ResponseEntity.ok(statisticsService.getStatistics());
     }
 
-    /** Запуск общей индексации */
+    /** Запуск общей индексации, с параметром incremental=true - повторной индексации только изменившихся страниц */
     @GetMapping("/startIndexing")
-    public ResponseEntity<IndexResponse> startIndexing() {
+    public ResponseEntity<IndexResponse> startIndexing(@RequestParam(value = "incremental", required = false,
+            defaultValue = "false") boolean incremental) {
 
         IndexResponse response = null;
         try {
-            response = indexingService.startIndexing();
+            response = indexingService.startIndexing(incremental);
         } catch (IOException e) {
             log.error(e.toString());
         }
@@ -78,18 +91,77 @@ public class ApiController<StopIndexingService> {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
-    /** Поиск */
+    /** Поиск; параметры ranking, k1 и b задают функцию ранжирования вместо указанной в настройках.
+     * Запрос выполняется в пуле потоков поиска, поток веб-сервера не ждет его завершения */
     @GetMapping("/search")
-    public ResponseEntity<SearchResponse> search(@RequestParam String query,
+    public CompletableFuture<ResponseEntity<SearchResponse>> search(@RequestParam String query,
                                                  @RequestParam(value = "site", required = false, defaultValue="") String site,
                                                  @RequestParam int offset,
-                                                 @RequestParam int limit) {
-        SearchResponse response = searchService.search(query, site, offset, limit);
-        if (response.getResult()) {
-            return ResponseEntity.ok(response);
-        }
+                                                 @RequestParam int limit,
+                                                 RankingParameters rankingParameters) {
+        return asyncSearchService.search(query, site, offset, limit, rankingParameters, null)
+                .thenApply(response -> response.getResult()
+                        ? ResponseEntity.ok(response) : ResponseEntity.badRequest().body(response))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof RejectedExecutionException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .body(new SearchResponseError("Сервер поиска перегружен, повторите запрос позже"));
+                    }
+                    log.error(cause.toString());
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(new SearchResponseError("Ошибка поиска: " + cause.getMessage()));
+                });
+    }
+
+    /** Потоковый поиск (Server-Sent Events): событие count с количеством найденных страниц, затем событие
+     * result на каждую страницу сразу после построения ее сниппета и завершающее событие done либо error */
+    @GetMapping(value = "/search/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter searchStream(@RequestParam String query,
+                                   @RequestParam(value = "site", required = false, defaultValue="") String site,
+                                   @RequestParam int offset,
+                                   @RequestParam int limit,
+                                   RankingParameters rankingParameters) {
+        SseEmitter emitter = new SseEmitter();
+        SearchResultListener listener = new SearchResultListener() {
+            @Override
+            public void onCount(int count, boolean estimated, boolean partial) {
+                send(emitter, "count", new SearchCountEvent(count, estimated, partial));
+            }
 
-        return ResponseEntity.badRequest().body(response);
+            @Override
+            public void onResult(SearchData data) {
+                send(emitter, "result", data);
+            }
+        };
+        asyncSearchService.search(query, site, offset, limit, rankingParameters, listener)
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        log.error(e.toString());
+                        emitter.completeWithError(e);
+                        return;
+                    }
+                    try {
+                        if (response.getResult()) {
+                            emitter.send(SseEmitter.event().name("done").data(""));
+                        } else {
+                            emitter.send(SseEmitter.event().name("error").data(response));
+                        }
+                        emitter.complete();
+                    } catch (IOException ex) {
+                        emitter.completeWithError(ex);
+                    }
+                });
+        return emitter;
+    }
+
+    /** Отправка события; если клиент отключился, поиск прерывается исключением */
+    private static void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
 }
@@ -0,0 +1,8 @@
+package searchengine.dto.search;
+
+/** Страница результата поиска
+ * @param pageId {int} id страницы
+ * @param relevance {float} относительная релевантность, 1 у самой релевантной страницы
+ */
+public record RankedPage(int pageId, float relevance) {
+}
@@ -0,0 +1,12 @@
+package searchengine.dto.search;
+
+import java.util.List;
+
+/** Часть результатов поиска
+ * @param pages {List<RankedPage>} страницы запрошенного диапазона по убыванию релевантности
+ * @param total {int} общее количество найденных страниц
+ * @param estimated {boolean} true, если общее количество - нижняя оценка из-за отсечения страниц по порогу
+ * @param partial {boolean} true, если часть сайтов не ответила за отведенное время и результаты неполные
+ */
+public record RankedPages(List<RankedPage> pages, int total, boolean estimated, boolean partial) {
+}
@@ -0,0 +1,16 @@
+package searchengine.dto.search;
+
+import lombok.Data;
+
+/** Параметры ранжирования и отбора из запроса поиска; незаданные параметры берутся из файла настроек */
+@Data
+public class RankingParameters {
+    /** Функция ранжирования: bm25, tfidf либо rank */
+    private String ranking;
+    /** Насыщение частоты слова в BM25 */
+    private Float k1;
+    /** Степень нормализации по длине страницы в BM25 */
+    private Float b;
+    /** Наименьшее количество слов запроса на странице: число либо процент ("75%"), по умолчанию все слова */
+    private String minimumShouldMatch;
+}
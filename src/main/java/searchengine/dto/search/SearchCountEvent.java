@@ -0,0 +1,16 @@
+package searchengine.dto.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** Первое событие потоковой выдачи результатов поиска: количество найденных страниц */
+@Data
+@AllArgsConstructor
+public class SearchCountEvent {
+    private int count;
+    /** Количество - нижняя оценка: после search-settings.exact-count-threshold найденных страниц
+     * механизм поиска пропускает без подсчета страницы, которые не могут попасть в лучшие */
+    private boolean estimated;
+    /** Результаты неполные: часть сайтов не ответила за отведенное время */
+    private boolean partial;
+}
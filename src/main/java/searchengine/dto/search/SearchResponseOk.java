@@ -9,7 +9,12 @@ import java.util.List;
 @Data
 public class SearchResponseOk implements SearchResponse{
     private int count;
+    /** Количество - нижняя оценка: после search-settings.exact-count-threshold найденных страниц
+     * механизм поиска пропускает без подсчета страницы, которые не могут попасть в лучшие */
+    private boolean estimated;
     private List<SearchData> data;
+    /** Результаты неполные: часть сайтов не ответила за отведенное время */
+    private boolean partial;
 
     @Override
     public boolean getResult() {
@@ -0,0 +1,14 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+/** Класс статистики работы кэша */
+@Data
+public class CacheStatisticsItem {
+    private String name;
+    private long size;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+}
@@ -15,4 +15,5 @@ public class DetailedStatisticsItem {
     private String error;
     private int pages;
     private int lemmas;
+    private double pagesPerSecond;
 }
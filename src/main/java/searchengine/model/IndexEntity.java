@@ -8,12 +8,15 @@ public class IndexEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
-    @ManyToOne(cascade = CascadeType.MERGE)
+    @ManyToOne(cascade = CascadeType.MERGE, fetch = FetchType.LAZY)
     private PageEntity page;
     @ManyToOne(cascade = CascadeType.MERGE)
     private LemmaEntity lemma;
     @Column(name = "`rank`", nullable = false)
     private float rank;
+    /** Порядковые номера слов страницы с этой леммой, разностями в формате varint */
+    @Column(name = "positions")
+    private byte[] positions;
 
     public int getId() {
         return id;
@@ -42,4 +45,12 @@ public class IndexEntity {
     public void setRank(float rank) {
         this.rank = rank;
     }
+
+    public byte[] getPositions() {
+        return positions;
+    }
+
+    public void setPositions(byte[] positions) {
+        this.positions = positions;
+    }
 }
@@ -21,6 +21,15 @@ public class PageEntity implements Comparable<PageEntity> {
     @Column(nullable = false, columnDefinition = "MEDIUMTEXT")
     private String content;
 
+    @Column(columnDefinition = "VARCHAR(255)")
+    private String etag;
+
+    @Column(name = "last_modified", columnDefinition = "VARCHAR(64)")
+    private String lastModified;
+
+    @Column(name = "content_hash", columnDefinition = "CHAR(64)")
+    private String contentHash;
+
     public int getId() {
         return id;
     }
@@ -57,6 +66,30 @@ public class PageEntity implements Comparable<PageEntity> {
         this.content = content;
     }
 
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     @Override
     public int compareTo(PageEntity p) {
         return Integer.compare(p.getId(), this.getId());
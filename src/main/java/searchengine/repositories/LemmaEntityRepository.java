@@ -8,15 +8,6 @@ import java.util.List;
 
 public interface LemmaEntityRepository extends JpaRepository<LemmaEntity, Integer> {
 
-    /** Поиск лемм по site_id и леммам, упорядоченных по частоте нахождения лемм
-     * @param siteId {list<Integer>} принимает параметр список id сайтов
-     * @param lemma {List<String>} принимает параметр список лемм
-     * @return {List<LemmaEntity>} возвращает список лемм по заданным параметрам
-     */
-    @Query(value = "SELECT * from lemma where site_id in (:siteId)" +
-            " and lemma in (:lemma) ", nativeQuery = true)
-    List<LemmaEntity> selectLemmaIdBySiteIdAndLemmaOrderByFreq(List<Integer> siteId, List<String> lemma);
-
     /** Выбор лемм по site_id
      * @param siteId {String} принимает параметр id сайта
      * @return {List<LemmaEntity>} возвращает список лемм по заданным параметрам
@@ -24,13 +15,6 @@ public interface LemmaEntityRepository extends JpaRepository<LemmaEntity, Intege
     @Query(value = "SELECT * from lemma where site_id = :siteId", nativeQuery = true)
     List<LemmaEntity> selectLemmaIdBySiteId(String siteId);
 
-    /** Поиск lemma_id по лемме
-     * @param lemma {String} принимает параметр лемма
-     * @return {List<Integer>} возвращает список id лемм по заданным параметрам
-     */
-    @Query(value = "SELECT id from lemma where lemma in (:lemma)", nativeQuery = true)
-    List<Integer> selectLemmaIdByLemma(List<String> lemma);
-
     /** Поиск лемм по частоте
      * @param frequency {int} принимает параметр частота леммы
      */
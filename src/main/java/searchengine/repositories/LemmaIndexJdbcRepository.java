@@ -0,0 +1,190 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import searchengine.utils.LemmaIndexBatch;
+import searchengine.utils.SiteLemmaDictionary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Репозиторий пакетной записи лемм и индексов через JDBC */
+@Repository
+@RequiredArgsConstructor
+public class LemmaIndexJdbcRepository {
+
+    /** Максимальное количество лемм в одном запросе выборки id */
+    private static final int SELECT_CHUNK_SIZE = 1000;
+
+    private static final String UPSERT_LEMMA = "INSERT INTO lemma (site_id, lemma, frequency) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE frequency = frequency + VALUES(frequency)";
+    private static final String UPSERT_INDEX = "INSERT INTO `index` (page_id, lemma_id, `rank`, positions) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE `rank` = VALUES(`rank`), positions = VALUES(positions)";
+    private static final String UPDATE_LEMMA_FREQUENCY = "UPDATE lemma SET frequency = frequency + ? WHERE id = ?";
+    private static final String SELECT_PAGE_LEMMAS = "SELECT l.id, l.lemma FROM `index` i JOIN lemma l ON l.id = i.lemma_id " +
+            "WHERE i.page_id = ?";
+    private static final String DELETE_INDEX = "DELETE FROM `index` WHERE page_id = ? and lemma_id = ?";
+    private static final String DELETE_PAGE_INDEXES = "DELETE FROM `index` WHERE page_id = ?";
+    private static final String DELETE_PAGE = "DELETE FROM page WHERE id = ?";
+    private static final String DELETE_UNUSED_LEMMAS = "DELETE FROM lemma WHERE site_id = ? and frequency <= 0";
+    private static final String SELECT_LEMMA_IDS = "SELECT id, lemma FROM lemma WHERE site_id = :siteId and lemma in (:lemmas)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /** Запись пакета лемм и индексов в базу одной транзакцией. Id известных лемм берутся из словаря сайта,
+     * их частота копится в словаре до {@link #writeFrequencies}; в базу вставляются только новые леммы.
+     * Словарь изменяется только после фиксации транзакции, при откате он остается прежним
+     * @param batch {LemmaIndexBatch} принимает параметр накопленный пакет
+     * @param dictionary {SiteLemmaDictionary} принимает параметр словарь лемм сайта
+     */
+    @Transactional
+    public void write(LemmaIndexBatch batch, SiteLemmaDictionary dictionary) {
+        if (batch.isEmpty()) return;
+        List<Object[]> lemmaArgs = new ArrayList<>();
+        List<String> newLemmas = new ArrayList<>();
+        Map<Integer, Integer> frequencies = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : batch.getLemmaFrequencies().entrySet()) {
+            Integer id = dictionary.getId(entry.getKey());
+            if (id != null) {
+                frequencies.merge(id, entry.getValue(), Integer::sum);
+                continue;
+            }
+            newLemmas.add(entry.getKey());
+            lemmaArgs.add(new Object[]{batch.getSiteId(), entry.getKey(), entry.getValue()});
+        }
+        Map<String, Integer> newLemmaIds = new HashMap<>();
+        if (!newLemmas.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_LEMMA, lemmaArgs);
+            newLemmaIds = selectLemmaIds(batch.getSiteId(), newLemmas);
+        }
+
+        List<Object[]> indexArgs = new ArrayList<>();
+        for (LemmaIndexBatch.IndexRow row : batch.getIndexRows()) {
+            Integer id = dictionary.getId(row.lemma());
+            indexArgs.add(new Object[]{row.pageId(), id != null ? id : newLemmaIds.get(row.lemma()), row.rank(), row.positions()});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_INDEX, indexArgs);
+        Map<String, Integer> committedLemmaIds = newLemmaIds;
+        afterCommit(() -> {
+            committedLemmaIds.forEach(dictionary::put);
+            frequencies.forEach(dictionary::addFrequency);
+        });
+    }
+
+    /** Выполнение действия после фиксации текущей транзакции либо сразу, если транзакции нет
+     * @param action {Runnable} принимает параметр действие над словарем лемм
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /** Запись накопленных в словаре приращений частоты лемм. Записанные приращения вычитаются из словаря
+     * только после фиксации транзакции, при откате они будут записаны следующим вызовом
+     * @param dictionary {SiteLemmaDictionary} принимает параметр словарь лемм сайта
+     */
+    @Transactional
+    public void writeFrequencies(SiteLemmaDictionary dictionary) {
+        Map<Integer, Integer> frequencies = dictionary.getPendingFrequencies();
+        List<Object[]> args = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : frequencies.entrySet()) {
+            if (entry.getValue() != 0) args.add(new Object[]{entry.getValue(), entry.getKey()});
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_LEMMA_FREQUENCY, args);
+        }
+        afterCommit(() -> dictionary.commitFrequencies(frequencies));
+    }
+
+    /** Получение лемм страницы
+     * @param pageId {int} принимает параметр id страницы
+     * @return {Map<String, Integer>} возвращает id лемм страницы по лемме
+     */
+    public Map<String, Integer> selectPageLemmas(int pageId) {
+        Map<String, Integer> lemmaIds = new HashMap<>();
+        jdbcTemplate.query(SELECT_PAGE_LEMMAS, rs -> {
+            lemmaIds.put(rs.getString("lemma"), rs.getInt("id"));
+        }, pageId);
+        return lemmaIds;
+    }
+
+    /** Удаление индексов страницы по леммам, которых больше нет на странице, с уменьшением частоты лемм в словаре
+     * @param pageId {int} принимает параметр id страницы
+     * @param lemmaIds {Collection<Integer>} принимает параметр id удаляемых лемм страницы
+     * @param dictionary {SiteLemmaDictionary} принимает параметр словарь лемм сайта
+     */
+    @Transactional
+    public void deleteIndexes(int pageId, Collection<Integer> lemmaIds, SiteLemmaDictionary dictionary) {
+        List<Object[]> args = new ArrayList<>();
+        for (Integer lemmaId : lemmaIds) {
+            args.add(new Object[]{pageId, lemmaId});
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_INDEX, args);
+            afterCommit(() -> lemmaIds.forEach(lemmaId -> dictionary.addFrequency(lemmaId, -1)));
+        }
+    }
+
+    /** Удаление страниц с их индексами и уменьшением частоты лемм в словаре
+     * @param pageIds {List<Integer>} принимает параметр id удаляемых страниц
+     * @param dictionary {SiteLemmaDictionary} принимает параметр словарь лемм сайта
+     */
+    @Transactional
+    public void deletePages(List<Integer> pageIds, SiteLemmaDictionary dictionary) {
+        List<Object[]> args = new ArrayList<>();
+        List<Integer> removedLemmaIds = new ArrayList<>();
+        for (Integer pageId : pageIds) {
+            removedLemmaIds.addAll(selectPageLemmas(pageId).values());
+            args.add(new Object[]{pageId});
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_PAGE_INDEXES, args);
+            jdbcTemplate.batchUpdate(DELETE_PAGE, args);
+            afterCommit(() -> removedLemmaIds.forEach(lemmaId -> dictionary.addFrequency(lemmaId, -1)));
+        }
+    }
+
+    /** Удаление лемм сайта, не встречающихся больше ни на одной странице
+     * @param siteId {int} принимает параметр id сайта
+     */
+    public void deleteUnusedLemmas(int siteId) {
+        jdbcTemplate.update(DELETE_UNUSED_LEMMAS, siteId);
+    }
+
+    /** Получение id лемм сайта
+     * @param siteId {int} принимает параметр id сайта
+     * @param lemmas {List<String>} принимает параметр список лемм
+     * @return {Map<String, Integer>} возвращает id лемм по лемме
+     */
+    public Map<String, Integer> selectLemmaIds(int siteId, List<String> lemmas) {
+        Map<String, Integer> lemmaIds = new HashMap<>();
+        for (int i = 0; i < lemmas.size(); i += SELECT_CHUNK_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("siteId", siteId)
+                    .addValue("lemmas", lemmas.subList(i, Math.min(i + SELECT_CHUNK_SIZE, lemmas.size())));
+            namedParameterJdbcTemplate.query(SELECT_LEMMA_IDS, params,
+                    rs -> {
+                        lemmaIds.put(rs.getString("lemma"), rs.getInt("id"));
+                    });
+        }
+        return lemmaIds;
+    }
+}
@@ -0,0 +1,57 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import searchengine.utils.KnownPages;
+import searchengine.utils.PageText;
+import searchengine.utils.PageTokens;
+
+import java.util.List;
+
+/** Репозиторий сведений о страницах через JDBC без загрузки их содержимого */
+@Repository
+@RequiredArgsConstructor
+public class PageJdbcRepository {
+
+    private static final String SELECT_KNOWN_PAGES = "SELECT id, path, code, etag, last_modified, content_hash " +
+            "FROM page WHERE site_id = ?";
+    private static final String SELECT_CONTENT = "SELECT content FROM page WHERE id = ?";
+    private static final String UPSERT_TEXT = "INSERT INTO page_text (page_id, title, text, length, tokens) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE title = VALUES(title), text = VALUES(text), length = VALUES(length), tokens = VALUES(tokens)";
+    /** Максимальная длина сохраняемого заголовка */
+    private static final int MAX_TITLE_LENGTH = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Выбор сохраненных страниц сайта для повторной индексации
+     * @param siteId {int} принимает параметр id сайта
+     * @return {List<KnownPage>} возвращает сведения о страницах без их содержимого
+     */
+    public List<KnownPages.KnownPage> selectKnownPages(int siteId) {
+        return jdbcTemplate.query(SELECT_KNOWN_PAGES, (rs, rowNum) -> new KnownPages.KnownPage(
+                rs.getInt("id"), rs.getString("path"), rs.getInt("code"),
+                rs.getString("etag"), rs.getString("last_modified"), rs.getString("content_hash")), siteId);
+    }
+
+    /** Выбор содержимого страницы
+     * @param pageId {int} принимает параметр id страницы
+     * @return {String} возвращает html страницы либо пустую строку
+     */
+    public String selectContent(int pageId) {
+        List<String> content = jdbcTemplate.queryForList(SELECT_CONTENT, String.class, pageId);
+        return content.isEmpty() || content.get(0) == null ? "" : content.get(0);
+    }
+
+    /** Сохранение заголовка, текста, длины и границ слов страницы для вывода и ранжирования результатов поиска
+     * @param pageId {int} принимает параметр id страницы
+     * @param pageText {PageText} принимает параметр заголовок и текст страницы
+     * @param length {int} принимает параметр длина страницы в леммах
+     * @param tokens {byte[]} принимает параметр границы слов текста в формате {@link PageTokens#encodeOffsets()}
+     */
+    public void saveText(int pageId, PageText pageText, int length, byte[] tokens) {
+        String title = pageText.title().length() > MAX_TITLE_LENGTH
+                ? pageText.title().substring(0, MAX_TITLE_LENGTH) : pageText.title();
+        jdbcTemplate.update(UPSERT_TEXT, pageId, title, pageText.text(), length, tokens);
+    }
+}
@@ -0,0 +1,220 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import searchengine.config.SearchSettings;
+import searchengine.utils.PageMatchHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Репозиторий поиска страниц через JDBC: отбор страниц, содержащих все слова запроса, выполняется
+ * одним агрегирующим запросом в базе, в приложение передаются только id страниц и ранги слов */
+@Repository
+@RequiredArgsConstructor
+public class SearchJdbcRepository {
+
+    private static final String SELECT_FOUND_PAGES = "SELECT p.id, s.url, s.name, p.path, t.title, t.text, t.tokens, " +
+            "CASE WHEN t.page_id IS NULL THEN p.content END AS content " +
+            "FROM page p JOIN site s ON s.id = p.site_id LEFT JOIN page_text t ON t.page_id = p.id " +
+            "WHERE p.id IN (:pageIds)";
+
+    private static final String SELECT_SITE_POSTINGS = "SELECT l.id, l.lemma, i.page_id, i.`rank` " +
+            "FROM `index` i JOIN lemma l ON l.id = i.lemma_id WHERE l.site_id = ? ORDER BY l.id, i.page_id";
+    private static final String SELECT_PAGE_POSTINGS = "SELECT l.id, l.lemma, i.page_id, i.`rank` " +
+            "FROM `index` i JOIN lemma l ON l.id = i.lemma_id WHERE i.page_id = ? ORDER BY l.id";
+
+    private static final String SELECT_PAGE_STATISTICS = "SELECT COUNT(*), COALESCE(AVG(t.length), 0) " +
+            "FROM page_text t JOIN page p ON p.id = t.page_id WHERE p.site_id = :siteId";
+    private static final String SELECT_POSITIONS = "SELECT i.page_id, l.lemma, i.positions " +
+            "FROM `index` i JOIN lemma l ON l.id = i.lemma_id " +
+            "WHERE i.page_id IN (:pageIds) AND l.lemma IN (:lemmas) AND i.positions IS NOT NULL";
+    private static final String SELECT_LEMMA_FREQUENCIES = "SELECT lemma, frequency FROM lemma " +
+            "WHERE site_id = :siteId AND lemma IN (:lemmas)";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final SearchSettings searchSettings;
+    /** Шаблон с построчным чтением результата (fetchSize = Integer.MIN_VALUE для MySQL) и ограничением времени
+     * запроса по search-settings.shard-timeout: запрос шарда, не ответившего вовремя, прерывается базой
+     * и не держит соединение */
+    private volatile NamedParameterJdbcTemplate streamingTemplate;
+
+    /** Обработчик записи индекса при построчном чтении индекса сайта */
+    @FunctionalInterface
+    public interface PostingHandler {
+        void accept(int lemmaId, String lemma, int pageId, float rank);
+
+        /** Вызывается после последней строки */
+        default void finish() {
+        }
+    }
+
+    /** Данные страницы для вывода в результатах поиска
+     * @param pageId {int} id страницы
+     * @param siteUrl {String} адрес сайта
+     * @param siteName {String} имя сайта
+     * @param path {String} путь к странице
+     * @param title {String} заголовок страницы, null если текст страницы еще не сохранен
+     * @param text {String} текст страницы без разметки, null если текст страницы еще не сохранен
+     * @param tokens {byte[]} границы слов текста, null если они не сохранены при индексации
+     * @param content {String} html страницы, только если текст страницы еще не сохранен
+     */
+    public record FoundPage(int pageId, String siteUrl, String siteName, String path,
+                            String title, String text, byte[] tokens, String content) {
+    }
+
+    /** Поиск страниц, содержащих не меньше minimumShouldMatch слов запроса хотя бы в одной из их нормальных форм.
+     * Ранги слов на страницах выбираются отдельно для каждого слова и объединяются, поэтому лемма, общая
+     * для нескольких слов запроса, учитывается в каждом из них. Отбор страниц выполняется в базе, строки читаются потоком по возрастанию id страниц; страницы,
+     * граница оценки которых меньше порога обработчика, только учитываются без оценки. Запрос ограничен
+     * по времени, а при прерывании потока шарда отменяется, не дочитывая строки
+     * @param siteIds {List<Integer>} принимает параметр список id сайтов
+     * @param terms {List<List<String>>} принимает параметр слова запроса в виде списков их лемм
+     * @param minimumShouldMatch {int} принимает параметр наименьшее количество слов запроса на странице
+     * @param handler {PageMatchHandler} принимает параметр обработчик найденных страниц
+     */
+    public void selectMatches(List<Integer> siteIds, List<List<String>> terms, int minimumShouldMatch,
+                              PageMatchHandler handler) {
+        if (siteIds.isEmpty() || terms.isEmpty()) return;
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("siteIds", siteIds)
+                .addValue("termCount", Math.min(minimumShouldMatch, terms.size()));
+        StringBuilder termRanks = new StringBuilder();
+        for (int i = 0; i < terms.size(); i++) {
+            if (i > 0) termRanks.append(" UNION ALL ");
+            termRanks.append("SELECT i.page_id, ").append(i).append(" AS term, MAX(i.`rank`) AS `rank` ")
+                    .append("FROM `index` i JOIN lemma l ON l.id = i.lemma_id ")
+                    .append("WHERE l.site_id IN (:siteIds) AND l.lemma IN (:term").append(i).append(") ")
+                    .append("GROUP BY i.page_id");
+            params.addValue("term" + i, terms.get(i));
+        }
+        String sql = "SELECT x.page_id, p.site_id, x.term, x.`rank`, COALESCE(pt.length, 0) AS length " +
+                "FROM (SELECT t.page_id, t.term, t.`rank`, COUNT(*) OVER (PARTITION BY t.page_id) AS terms " +
+                "FROM (" + termRanks + ") t) x " +
+                "JOIN page p ON p.id = x.page_id LEFT JOIN page_text pt ON pt.page_id = x.page_id " +
+                "WHERE x.terms >= :termCount ORDER BY x.page_id, x.term";
+        float[] termFrequencies = new float[terms.size()];
+        int[] current = {-1, 0, 0};
+        getStreamingTemplate().query(sql, params, (ResultSet rs) -> {
+            if (Thread.currentThread().isInterrupted()) {
+                rs.getStatement().cancel();
+                throw new SQLException("Поиск по сайту прерван по истечении search-settings.shard-timeout");
+            }
+            int pageId = rs.getInt(1);
+            if (pageId != current[0]) {
+                if (current[0] >= 0) handler.offer(current[1], current[0], termFrequencies, current[2]);
+                Arrays.fill(termFrequencies, 0);
+                current[0] = pageId;
+                current[1] = rs.getInt(2);
+                current[2] = rs.getInt(5);
+            }
+            termFrequencies[rs.getInt(3)] = rs.getFloat(4);
+        });
+        if (current[0] >= 0) handler.offer(current[1], current[0], termFrequencies, current[2]);
+    }
+
+    /** Количество страниц сайта с сохраненным текстом и их средняя длина в леммах
+     * @param siteId {int} принимает параметр id сайта
+     * @return {double[]} возвращает массив из количества страниц и средней длины страницы
+     */
+    public double[] selectPageStatistics(int siteId) {
+        return namedParameterJdbcTemplate.queryForObject(SELECT_PAGE_STATISTICS, new MapSqlParameterSource("siteId", siteId),
+                (rs, rowNum) -> new double[]{rs.getInt(1), rs.getDouble(2)});
+    }
+
+    /** Частоты лемм на сайте
+     * @param siteId {int} принимает параметр id сайта
+     * @param lemmas {Collection<String>} принимает параметр леммы
+     * @return {Map<String, Integer>} возвращает количество страниц сайта с каждой леммой
+     */
+    public Map<String, Integer> selectLemmaFrequencies(int siteId, Collection<String> lemmas) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        if (lemmas.isEmpty()) return frequencies;
+        namedParameterJdbcTemplate.query(SELECT_LEMMA_FREQUENCIES,
+                new MapSqlParameterSource("siteId", siteId).addValue("lemmas", lemmas),
+                rs -> {
+                    frequencies.put(rs.getString(1), rs.getInt(2));
+                });
+        return frequencies;
+    }
+
+    /** Выбор данных найденных страниц для вывода в результатах поиска; html страницы загружается,
+     * только если ее заголовок и текст не были сохранены при индексации
+     * @param pageIds {List<Integer>} принимает параметр список id страниц
+     * @return {Map<Integer, FoundPage>} возвращает данные страниц по их id
+     */
+    public Map<Integer, FoundPage> selectFoundPages(List<Integer> pageIds) {
+        Map<Integer, FoundPage> foundPages = new HashMap<>();
+        if (pageIds.isEmpty()) return foundPages;
+        namedParameterJdbcTemplate.query(SELECT_FOUND_PAGES, new MapSqlParameterSource("pageIds", pageIds), rs -> {
+            foundPages.put(rs.getInt("id"), new FoundPage(rs.getInt("id"), rs.getString("url"), rs.getString("name"),
+                    rs.getString("path"), rs.getString("title"), rs.getString("text"), rs.getBytes("tokens"), rs.getString("content")));
+        });
+        return foundPages;
+    }
+
+    /** Выбор позиций лемм запроса на найденных страницах для построения сниппетов
+     * @param pageIds {List<Integer>} принимает параметр список id страниц
+     * @param lemmas {Collection<String>} принимает параметр леммы запроса
+     * @return {Map<Integer, Map<String, byte[]>>} возвращает закодированные позиции лемм по id страниц
+     */
+    public Map<Integer, Map<String, byte[]>> selectPositions(List<Integer> pageIds, Collection<String> lemmas) {
+        Map<Integer, Map<String, byte[]>> positions = new HashMap<>();
+        if (pageIds.isEmpty() || lemmas.isEmpty()) return positions;
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("pageIds", pageIds)
+                .addValue("lemmas", lemmas);
+        namedParameterJdbcTemplate.query(SELECT_POSITIONS, params, rs -> {
+            positions.computeIfAbsent(rs.getInt("page_id"), id -> new HashMap<>())
+                    .put(rs.getString("lemma"), rs.getBytes("positions"));
+        });
+        return positions;
+    }
+
+    /** Построчное чтение индекса сайта, упорядоченного по id лемм и id страниц, без загрузки
+     * всего результата в память
+     * @param siteId {int} принимает параметр id сайта
+     * @param handler {PostingHandler} принимает параметр обработчик записей индекса
+     */
+    public void selectSitePostings(int siteId, PostingHandler handler) {
+        selectPostings(SELECT_SITE_POSTINGS, siteId, handler);
+    }
+
+    /** Построчное чтение индекса страницы, упорядоченного по id лемм
+     * @param pageId {int} принимает параметр id страницы
+     * @param handler {PostingHandler} принимает параметр обработчик записей индекса
+     */
+    public void selectPagePostings(int pageId, PostingHandler handler) {
+        selectPostings(SELECT_PAGE_POSTINGS, pageId, handler);
+    }
+
+    private void selectPostings(String sql, int id, PostingHandler handler) {
+        namedParameterJdbcTemplate.getJdbcTemplate().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setInt(1, id);
+            return statement;
+        }, (ResultSet rs) -> handler.accept(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getFloat(4)));
+        handler.finish();
+    }
+
+    private NamedParameterJdbcTemplate getStreamingTemplate() {
+        if (streamingTemplate == null) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(namedParameterJdbcTemplate.getJdbcTemplate().getDataSource());
+            jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+            jdbcTemplate.setQueryTimeout((int) Math.max(1, (searchSettings.getShardTimeout().toMillis() + 999) / 1000));
+            streamingTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        }
+        return streamingTemplate;
+    }
+}
@@ -0,0 +1,53 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import searchengine.config.SearchSettings;
+import searchengine.dto.search.RankingParameters;
+import searchengine.dto.search.SearchResponse;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/** Выполнение запросов поиска в отдельном ограниченном пуле потоков: поток веб-сервера освобождается
+ * сразу после приема запроса. Запросы сверх емкости очереди пула отклоняются */
+@Service
+@RequiredArgsConstructor
+public class AsyncSearchService {
+
+    private final SearchService searchService;
+    private final SearchSettings searchSettings;
+    private ThreadPoolExecutor searchExecutor;
+
+    @PostConstruct
+    public void start() {
+        int threads = Math.max(1, searchSettings.getRequestThreads());
+        searchExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, searchSettings.getRequestQueueCapacity())));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        searchExecutor.shutdownNow();
+    }
+
+    /** Асинхронный поиск
+     * @param listener {SearchResultListener} принимает параметр получатель результатов по мере их готовности либо null
+     * @return {CompletableFuture<SearchResponse>} возвращает ответ поиска; при переполнении очереди
+     * завершается исключением RejectedExecutionException
+     */
+    public CompletableFuture<SearchResponse> search(String query, String site, int offset, int limit,
+                                                    RankingParameters rankingParameters, SearchResultListener listener) {
+        try {
+            return CompletableFuture.supplyAsync(() ->
+                    searchService.search(query, site, offset, limit, rankingParameters, listener), searchExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
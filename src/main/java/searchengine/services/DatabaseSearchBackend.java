@@ -0,0 +1,63 @@
+package searchengine.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import searchengine.repositories.SearchJdbcRepository;
+import searchengine.utils.PageIndexedEvent;
+import searchengine.utils.PageMatchHandler;
+import searchengine.utils.RankingStatistics;
+import searchengine.utils.SiteIndexedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Поиск агрегирующим запросом к таблицам index и lemma в MySQL */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "search-settings", name = "backend", havingValue = "database", matchIfMissing = true)
+public class DatabaseSearchBackend implements SearchBackend {
+
+    private final SearchJdbcRepository searchJdbcRepository;
+    /** Количество и средняя длина страниц сайтов; во время индексации обновляется раз в минуту */
+    private final Cache<Integer, double[]> pageStatistics = Caffeine.newBuilder()
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+
+    @Override
+    public void match(List<Integer> siteIds, List<List<String>> terms, int minimumShouldMatch, PageMatchHandler handler) {
+        searchJdbcRepository.selectMatches(siteIds, terms, minimumShouldMatch, handler);
+    }
+
+    @Override
+    public RankingStatistics getStatistics(int siteId, List<List<String>> terms) {
+        double[] pages = pageStatistics.get(siteId, searchJdbcRepository::selectPageStatistics);
+        List<String> lemmas = new ArrayList<>();
+        for (List<String> term : terms) {
+            lemmas.addAll(term);
+        }
+        Map<String, Integer> frequencies = searchJdbcRepository.selectLemmaFrequencies(siteId, lemmas);
+        int[] documentFrequencies = new int[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            for (String lemma : terms.get(i)) {
+                documentFrequencies[i] = Math.max(documentFrequencies[i], frequencies.getOrDefault(lemma, 0));
+            }
+        }
+        return new RankingStatistics((int) pages[0], pages[1], documentFrequencies);
+    }
+
+    @EventListener
+    public void onSiteIndexed(SiteIndexedEvent event) {
+        pageStatistics.invalidate(event.siteId());
+    }
+
+    @EventListener
+    public void onPageIndexed(PageIndexedEvent event) {
+        pageStatistics.invalidate(event.siteId());
+    }
+}
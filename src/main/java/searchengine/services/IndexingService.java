@@ -6,7 +6,7 @@ import searchengine.dto.index.IndexResponse;
 import java.io.IOException;
 
 public interface IndexingService {
-    IndexResponse startIndexing() throws IOException;
+    IndexResponse startIndexing(boolean incremental) throws IOException;
     IndexResponse stopIndexing();
     IndexResponse indexPage(String page) throws IOException;
 }
@@ -2,9 +2,13 @@ package searchengine.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import searchengine.config.BatchSettings;
+import searchengine.config.CrawlSettings;
+import searchengine.config.IndexFieldSettings;
+import searchengine.config.LemmatizerSettings;
+import searchengine.config.SchedulerSettings;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
 import searchengine.dto.index.IndexResponse;
@@ -14,12 +18,21 @@ import searchengine.model.*;
 import searchengine.repositories.*;
 import searchengine.utils.*;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.ForkJoinPool;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /** Сервис индексации включает методы <b>StartIndexing</b>, <b>StopIndexing</b>, <b>indexPage</b> */
 @Service
@@ -28,71 +41,116 @@ import java.util.concurrent.ForkJoinPool;
 public class IndexingServiceImpl implements IndexingService {
     /** Список сайтов из application.properties */
     private final SitesList sites;
-    /** Поле, определяющее запущена ли индексация сайтов */
-    private boolean isIndexing = false;
     /** Репозиторий для таблицы site */
     private final SiteEntityRepository siteEntityRepository;
     /** Репозиторий для таблицы page */
     private final PageEntityRepository pageEntityRepository;
     /** Репозиторий для таблицы lemma */
     private final LemmaEntityRepository lemmaEntityRepository;
-    /** Репозиторий для таблицы index */
-    private final IndexEntityRepository indexEntityRepository;
-    /** Список потоков для индексации сайтов */
-    private List<Thread> threadSiteIndexingList = new ArrayList<>();
+    /** Репозиторий пакетной записи лемм и индексов */
+    private final LemmaIndexJdbcRepository lemmaIndexJdbcRepository;
+    /** Общий лемматизатор */
+    private final Lemmatizer lemmatizer;
+    /** Настройки пакетной записи лемм и индексов */
+    private final BatchSettings batchSettings;
+    /** Настройки обхода сайтов */
+    private final CrawlSettings crawlSettings;
+    /** Ограничители частоты запросов к хостам */
+    private final PolitenessScheduler politenessScheduler;
+    /** Скорость обхода сайтов */
+    private final CrawlMetrics crawlMetrics;
+    /** Загрузчик страниц */
+    private final PageFetcher pageFetcher;
+    /** Репозиторий выборки сведений о страницах */
+    private final PageJdbcRepository pageJdbcRepository;
+    /** Публикация событий окончания индексации сайтов */
+    private final ApplicationEventPublisher eventPublisher;
+    /** Поколения индекса сайтов для проверки актуальности кэша результатов поиска */
+    private final IndexGenerations indexGenerations;
+    /** Общий пул задач индексации */
+    private final IndexingScheduler indexingScheduler;
+    /** Настройки планировщика индексации */
+    private final SchedulerSettings schedulerSettings;
+    /** Пул лемматизации загруженных страниц */
+    private final LemmatizationStage lemmatizationStage;
+    /** Настройки лемматизатора */
+    private final LemmatizerSettings lemmatizerSettings;
+    /** Веса полей страницы */
+    private final IndexFieldSettings indexFieldSettings;
+    /** Токен отмены текущей индексации сайтов; null, если индексация не запущена */
+    private final AtomicReference<CancellationToken> indexingToken = new AtomicReference<>();
+    /** Количество сайтов текущей индексации, обработка которых еще не завершена */
+    private final AtomicInteger indexingSites = new AtomicInteger();
+    /** Индексируемые сайты по url: одиночные страницы этих сайтов индексируются задачами сайта */
+    private final Map<String, SiteIndexing> siteIndexingMap = new ConcurrentHashMap<>();
 
-    /** Запуск индексации сайтов */
+    /** Одиночная страница, ожидающая индексации задачей сайта
+     * @param page {String} адрес страницы
+     * @param path {String} путь к странице
+     * @param result {CompletableFuture<Boolean>} результат индексации страницы
+     */
+    private record PendingPage(String page, String path, CompletableFuture<Boolean> result) {
+    }
+
+    /** Запуск индексации сайтов
+     * @param incremental {boolean} повторная индексация: неизменившиеся страницы пропускаются,
+     *                    изменившиеся обновляются, исчезнувшие удаляются
+     */
     @Override
-    public IndexResponse startIndexing() {
-        isIndexing = !threadSiteIndexingList.isEmpty();
-        if (isIndexing) {
+    public IndexResponse startIndexing(boolean incremental) {
+        CancellationToken token = new CancellationToken();
+        if (!indexingToken.compareAndSet(null, token)) {
             return new IndexResponseError("Индексация уже запущена");
         }
         IndexResponseOk response = new IndexResponseOk();
-        isIndexing = true;
         SitesMethods sitesMethods = new SitesMethods(sites, siteEntityRepository);
         sitesMethods.deleteSitesNotInSetting();
 
-        for (Site site : sites.getSites()) {
-            threadSiteIndexingList.add(threadIndexing(site));
+        List<Site> siteList = sites.getSites();
+        if (siteList.isEmpty()) {
+            indexingToken.set(null);
+            return response;
         }
-        for (Thread thread : threadSiteIndexingList) {
-            thread.start();
+        indexingSites.set(siteList.size());
+        for (Site site : siteList) {
+            SiteIndexing siteIndexing = new SiteIndexing(site, incremental, token);
+            siteIndexingMap.put(site.getUrl(), siteIndexing);
+            indexingScheduler.submit(IndexingScheduler.Priority.NORMAL, () -> siteIndexing.runStep(siteIndexing::start));
         }
         return response;
     }
 
-    /** Остановка индексации сайтов */
+    /** Остановка индексации сайтов: задачи сайтов завершаются при следующей проверке токена отмены */
     @Override
     public IndexResponse stopIndexing() {
-        isIndexing = !threadSiteIndexingList.isEmpty();
-        if (!isIndexing) {
+        CancellationToken token = indexingToken.get();
+        if (token == null || token.isCancelled()) {
             return new IndexResponseError("Индексация не запущена");
         }
-        IndexResponseOk response = new IndexResponseOk();
-        isIndexing = false;
-        for (Thread thread : threadSiteIndexingList) {
-            thread.interrupt();
-        }
-        threadSiteIndexingList.clear();
-        return response;
+        token.cancel();
+        return new IndexResponseOk();
     }
 
-    /** Индексация одной страницы */
+    /** Индексация одной страницы: задача выполняется в общем пуле раньше задач обхода сайтов. Страница
+     * индексируемого сайта передается задачам этого сайта и записывается с его словарем лемм и пакетом,
+     * чтобы не удалить леммы, которые использует индексация сайта */
     @Override
     public IndexResponse indexPage(String page) {
-        isIndexing = true;
-        if (addIndexPage(page)) {
-            isIndexing = false;
+        PagePath pagePath = SitesMethods.getUrlAndPath(page);
+        SiteIndexing siteIndexing = pagePath == null ? null : siteIndexingMap.get(pagePath.getSiteUrl());
+        CompletableFuture<Boolean> result = siteIndexing == null ? null
+                : siteIndexing.indexPage(page, UrlFrontier.normalizePath(pagePath.getPath()));
+        if (result == null) result = indexingScheduler.call(IndexingScheduler.Priority.HIGH, () -> addIndexPage(page));
+        if (result.join()) {
             return new IndexResponseOk();
         } else {
-            isIndexing = false;
             return new IndexResponseError("Данная страница находится за пределами сайтов, " +
                     "указанных в конфигурационном файле");
         }
     }
 
-    /** Индексирование и добавление одной страницы
+    /** Индексирование и добавление одной страницы. Словарь лемм сайта не загружается: id лемм страницы
+     * выбираются при записи пакета только для ее лемм
      * @param page {String} принимает в качестве параметра адрес страницы
      * @return {boolean}
      */
@@ -102,69 +160,157 @@ public class IndexingServiceImpl implements IndexingService {
         SitesMethods sitesMethods = new SitesMethods(sites, siteEntityRepository);
         if (!sitesMethods.siteInSetting(pagePath.getSiteUrl())) return  false;
         SiteEntity siteEntity = sitesMethods.getSiteEntityFromDB(pagePath.getSiteUrl());
-        deletePage(siteEntity, pagePath.getPath());
-        PageEntity pageEntity = pageEntityRepository.save(addOnePageToDB(siteEntity, pagePath.getPath()));
-        if (pageEntity.getCode() < 400) {
-            addLemmaIndex(pageEntity);
-        }
+        String path = UrlFrontier.normalizePath(pagePath.getPath());
+        SiteLemmaDictionary dictionary = new SiteLemmaDictionary(siteEntity.getId());
+        PageIndexedEvent event = replacePage(siteEntity, path, createBatch(siteEntity), dictionary);
+        lemmaIndexJdbcRepository.writeFrequencies(dictionary);
+        lemmaIndexJdbcRepository.deleteUnusedLemmas(siteEntity.getId());
         saveSiteToDB(siteEntity, Status.INDEXED, null);
+        eventPublisher.publishEvent(event);
+        indexGenerations.bump(siteEntity.getId());
         return true;
     }
 
-    /** Добавление лемм и индексов для страницы
-     * @param pageEntity {PageEntity} Принимает адрес страницы page
+    /** Замена записей страницы заново загруженной страницей с ее леммами и индексами
+     * @param siteEntity {SiteEntity} принимает в качестве параметра сайт страницы
+     * @param path {String} принимает в качестве параметра путь к странице
+     * @param batch {LemmaIndexBatch} принимает в качестве параметра пустой пакет лемм и индексов сайта
+     * @param dictionary {SiteLemmaDictionary} принимает в качестве параметра словарь лемм сайта
+     * @return {PageIndexedEvent} возвращает событие об изменении страницы для публикации
      */
-    public void addLemmaIndex(PageEntity pageEntity) {
-        GetLemmasFromText getLemmasFromText = new GetLemmasFromText();
-        HashMap<String, Integer> lemmaMap = new HashMap<>();
-        HashMap<List<String>, Integer> lemmaMapByWordBase = null;
-        try {
-            lemmaMapByWordBase = new HashMap<>(getLemmasFromText.getLemmaList(pageEntity.getContent()));
-        } catch (IOException e) {
-            log.error(e.toString());
+    private PageIndexedEvent replacePage(SiteEntity siteEntity, String path, LemmaIndexBatch batch,
+                                         SiteLemmaDictionary dictionary) {
+        List<Integer> deletedPageIds = deletePage(siteEntity, path, dictionary);
+        PageEntity pageEntity = pageEntityRepository.save(addOnePageToDB(siteEntity, path));
+        if (pageEntity.getCode() < 400) {
+            addLemmaIndex(pageEntity, batch);
+            lemmaIndexJdbcRepository.write(batch, dictionary);
+            batch.clear();
         }
-        if (lemmaMapByWordBase != null) {
-            for (List<String> lemmaList : lemmaMapByWordBase.keySet()) {
-                for (String lemma : lemmaList) {
-                    lemmaMap.put(lemma, lemmaMapByWordBase.get(lemmaList));
-                }
+        return new PageIndexedEvent(siteEntity.getId(), pageEntity.getId(), deletedPageIds);
+    }
+
+    /** Добавление лемм и индексов страницы в пакет
+     * @param pageEntity {PageEntity} Принимает адрес страницы page
+     * @param batch {LemmaIndexBatch} Принимает пакет лемм и индексов сайта
+     */
+    public void addLemmaIndex(PageEntity pageEntity, LemmaIndexBatch batch) {
+        batch.add(pageEntity.getId(), indexPageText(pageEntity));
+    }
+
+    /** Извлечение полей и лемм страницы. Заголовок, текст, длина страницы во взвешенных вхождениях лемм
+     * и границы слов сохраняются для вывода, ранжирования результатов поиска и построения сниппетов
+     * @param pageEntity {PageEntity} Принимает страницу в качестве параметра
+     * @return {PageLemmas} Возвращает ранги и позиции лемм страницы
+     */
+    private PageLemmas indexPageText(PageEntity pageEntity) {
+        PageText pageText = PageText.of(pageEntity.getContent());
+        return indexPageText(pageEntity, pageText, PageLemmas.of(pageText, lemmatizer, indexFieldSettings));
+    }
+
+    /** Запись заголовка, текста и границ слов страницы, лемматизированной заранее
+     * @param pageEntity {PageEntity} Принимает страницу в качестве параметра
+     * @param pageText {PageText} Принимает поля страницы в качестве параметра
+     * @param pageLemmas {PageLemmas} Принимает ранги и позиции лемм в качестве параметра
+     * @return {PageLemmas} Возвращает ранги и позиции лемм страницы
+     */
+    private PageLemmas indexPageText(PageEntity pageEntity, PageText pageText, PageLemmas pageLemmas) {
+        pageJdbcRepository.saveText(pageEntity.getId(), pageText, pageLemmas.length(), pageLemmas.tokens().encodeOffsets());
+        return pageLemmas;
+    }
+
+    /** Создание пакета лемм и индексов для сайта
+     * @param siteEntity {SiteEntity} Принимает сайт в качестве параметра
+     * @return {LemmaIndexBatch} Возвращает пустой пакет с настройками из application.yaml
+     */
+    private LemmaIndexBatch createBatch(SiteEntity siteEntity) {
+        return new LemmaIndexBatch(siteEntity.getId(), batchSettings.getSize(), batchSettings.getFlushInterval());
+    }
+
+    /** Запись загруженной страницы: новая страница добавляется, неизменившаяся пропускается,
+     * у изменившейся обновляются содержимое и разница лемм и индексов
+     * @param site {SiteEntity} принимает в качестве параметра индексируемый сайт
+     * @param analyzedPage {AnalyzedPage} принимает в качестве параметра загруженную и лемматизированную страницу
+     * @param knownPages {KnownPages} принимает в качестве параметра страницы из предыдущей индексации
+     * @param batch {LemmaIndexBatch} принимает в качестве параметра пакет лемм и индексов
+     * @param dictionary {SiteLemmaDictionary} принимает в качестве параметра словарь лемм сайта
+     */
+    private void savePage(SiteEntity site, AnalyzedPage analyzedPage, KnownPages knownPages,
+                          LemmaIndexBatch batch, SiteLemmaDictionary dictionary) {
+        FetchedPage fetchedPage = analyzedPage.page();
+        KnownPages.KnownPage knownPage = knownPages.get(fetchedPage.path());
+        knownPages.markSeen(fetchedPage.path());
+        if (knownPage == null) {
+            PageEntity pageEntity = pageEntityRepository.save(createPageEntity(site, fetchedPage));
+            if (pageEntity.getCode() < 400) {
+                batch.add(pageEntity.getId(), getPageLemmas(pageEntity, analyzedPage));
             }
+            return;
         }
-        for (String keyLemma : lemmaMap.keySet()) {
-            if (!isIndexing) break;
-            LemmaEntity lemmaEntity = getLemmaEntity(pageEntity, keyLemma);
-            lemmaEntityRepository.save(lemmaEntity);
-            List<String> keyLemmaList = new ArrayList<>();
-            keyLemmaList.add(keyLemma);
-            List<IndexEntity> indexFromDB = indexEntityRepository.selectIndexIdByPageIdAndLemmaId(
-                    pageEntity.getId(), lemmaEntityRepository.selectLemmaIdByLemma(keyLemmaList));
-            IndexEntity indexEntity = getIndexEntityFromDB(indexFromDB, lemmaEntity, pageEntity);
-            indexEntity.setRank(lemmaMap.get(keyLemma));
-            indexEntityRepository.save(indexEntity);
+        if (fetchedPage.isNotModified() || fetchedPage.code() == 0) return;
+        String contentHash = analyzedPage.contentHash() != null ? analyzedPage.contentHash() : fetchedPage.contentHash();
+        if (fetchedPage.code() == knownPage.code() && contentHash.equals(knownPage.contentHash())) return;
+
+        PageEntity pageEntity = pageEntityRepository.findById(knownPage.id()).orElse(null);
+        if (pageEntity == null) return;
+        fillPageEntity(pageEntity, fetchedPage);
+        pageEntityRepository.save(pageEntity);
+        Map<String, Integer> oldLemmas = lemmaIndexJdbcRepository.selectPageLemmas(pageEntity.getId());
+        PageLemmas pageLemmas = pageEntity.getCode() < 400 ? getPageLemmas(pageEntity, analyzedPage) : null;
+        Map<String, Float> ranks = pageLemmas != null ? pageLemmas.ranks() : Map.of();
+        List<Integer> removedLemmaIds = new ArrayList<>();
+        for (Map.Entry<String, Integer> oldLemma : oldLemmas.entrySet()) {
+            if (!ranks.containsKey(oldLemma.getKey())) removedLemmaIds.add(oldLemma.getValue());
+        }
+        lemmaIndexJdbcRepository.deleteIndexes(pageEntity.getId(), removedLemmaIds, dictionary);
+        indexGenerations.bump(site.getId());
+        if (!ranks.isEmpty()) {
+            batch.add(pageEntity.getId(), pageLemmas, oldLemmas.keySet());
         }
     }
 
-    /** Индексация по заданному сайту
-     * @param newSite {Site} принимает в качестве параметра сущность SiteEntity
+    /** Ранги и позиции лемм сохраненной страницы: берутся из результата этапа лемматизации,
+     * а если страница не была разобрана, вычисляются в текущем потоке
+     * @param pageEntity {PageEntity} принимает в качестве параметра сохраненную страницу
+     * @param analyzedPage {AnalyzedPage} принимает в качестве параметра результат лемматизации страницы
+     * @return {PageLemmas} возвращает ранги и позиции лемм страницы
+     */
+    private PageLemmas getPageLemmas(PageEntity pageEntity, AnalyzedPage analyzedPage) {
+        return analyzedPage.isAnalyzed()
+                ? indexPageText(pageEntity, analyzedPage.pageText(), analyzedPage.pageLemmas())
+                : indexPageText(pageEntity);
+    }
+
+    /** Удаление страниц предыдущей индексации, которые не найдены при обходе сайта
+     * @param site {SiteEntity} принимает в качестве параметра индексируемый сайт
+     * @param knownPages {KnownPages} принимает в качестве параметра страницы из предыдущей индексации
+     * @param dictionary {SiteLemmaDictionary} принимает в качестве параметра словарь лемм сайта
      */
-    private void indexing(SiteEntity newSite,  ForkJoinPool forkJoinPool) {
-        String link = "";
-        List<String> duplicateLinks = new ArrayList<>();
-        List<Page> pageList = forkJoinPool.invoke(new LinksParser(new Page(newSite, link, duplicateLinks)));
-        List<PageEntity> pageEntityList = new ArrayList<>();
-        List<PageEntity> insertIntoPage = new ArrayList<>();
-        for (Page page : pageList) {
-            if (!isIndexing) return;
-            insertIntoPage.add(addOnePageToDB(page.getSiteParent(), page.getLink()));
+    private void deleteUnseenPages(SiteEntity site, KnownPages knownPages, SiteLemmaDictionary dictionary) {
+        List<Integer> pageIds = new ArrayList<>();
+        for (KnownPages.KnownPage knownPage : knownPages.getUnseen()) {
+            pageIds.add(knownPage.id());
         }
-        if (isIndexing) pageEntityList = pageEntityRepository.saveAll(insertIntoPage);
-        for (PageEntity pageEntity : pageEntityList) {
-            if (!isIndexing) return;
-            addLemmaIndex(pageEntity);
-            newSite.setStatus_time(LocalDateTime.now());
-            siteEntityRepository.save(newSite);
+        if (pageIds.isEmpty()) return;
+        log.info(site.getUrl() + ": удалено страниц, не найденных при обходе: " + pageIds.size());
+        lemmaIndexJdbcRepository.deletePages(pageIds, dictionary);
+        indexGenerations.bump(site.getId());
+    }
+
+    /** Запись пакета лемм и индексов в базу с периодической записью частот лемм
+     * @param site {SiteEntity} принимает в качестве параметра индексируемый сайт
+     * @param batch {LemmaIndexBatch} принимает в качестве параметра пакет лемм и индексов
+     * @param dictionary {SiteLemmaDictionary} принимает в качестве параметра словарь лемм сайта
+     */
+    private void flushBatch(SiteEntity site, LemmaIndexBatch batch, SiteLemmaDictionary dictionary) {
+        lemmaIndexJdbcRepository.write(batch, dictionary);
+        batch.clear();
+        indexGenerations.bump(site.getId());
+        if (batch.getFlushCount() % batchSettings.getFrequencyCheckpoint() == 0) {
+            lemmaIndexJdbcRepository.writeFrequencies(dictionary);
         }
-        if (isIndexing)  saveSiteToDB(newSite, Status.INDEXED, null);
+        site.setStatus_time(LocalDateTime.now());
+        siteEntityRepository.save(site);
     }
 
     private void saveSiteToDB(SiteEntity site, Status status, String lastError) {
@@ -174,99 +320,252 @@ public class IndexingServiceImpl implements IndexingService {
         siteEntityRepository.save(site);
     }
 
-    private Thread threadIndexing(Site site) {
-        return new Thread() {
-            final ForkJoinPool forkJoinPool = new ForkJoinPool();
-            SiteEntity newSite;
-            @Override
-            public void run() {
-                siteEntityRepository.deleteAll(siteEntityRepository.selectSiteIdByUrl(site.getUrl()));
+    /** Индексация одного сайта в виде последовательности коротких задач планировщика: подготовка сайта,
+     * затем порции записи загруженных страниц, лемм и индексов. Обход сайта идет в виртуальных потоках,
+     * лемматизация - в пуле лемматизации, одновременно с записью; страница появляется в поиске после записи
+     * ее пакета. Количество страниц сайта в лемматизации ограничено: пока они не записаны, очередь загруженных
+     * страниц заполняется и обход приостанавливается. Между порциями
+     * проверяется токен отмены; при отмене задача сама останавливает обход и записывает состояние сайта
+     */
+    private final class SiteIndexing {
+        private final Site site;
+        private final boolean incremental;
+        private final CancellationToken token;
+        private final ExecutorService crawlExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        private SiteEntity newSite;
+        private KnownPages knownPages = KnownPages.empty();
+        private BlockingQueue<FetchedPage> pageQueue;
+        /** Освобождены ли ресурсы сайта */
+        private final AtomicBoolean released = new AtomicBoolean();
+        /** Страницы в лемматизации в порядке загрузки */
+        private final Deque<CompletableFuture<AnalyzedPage>> analyzedPages = new ArrayDeque<>();
+        private CompletableFuture<Void> crawl;
+        private LemmaIndexBatch batch;
+        private SiteLemmaDictionary dictionary;
+        /** Одиночные страницы сайта, ожидающие индексации; доступ синхронизирован по самой очереди */
+        private final Deque<PendingPage> pendingPages = new ArrayDeque<>();
+
+        SiteIndexing(Site site, boolean incremental, CancellationToken token) {
+            this.site = site;
+            this.incremental = incremental;
+            this.token = token;
+        }
+
+        /** Подготовка сайта: при повторной индексации загружаются сведения о страницах,
+         * иначе записи сайта пересоздаются. Если главная страница доступна, запускается обход */
+        void start() {
+            List<SiteEntity> siteEntityList = siteEntityRepository.selectSiteIdByUrl(site.getUrl());
+            if (incremental && !siteEntityList.isEmpty()) {
+                newSite = siteEntityList.get(0);
+                saveSiteToDB(newSite, Status.INDEXING, null);
+                knownPages = new KnownPages(pageJdbcRepository.selectKnownPages(newSite.getId()),
+                        pageJdbcRepository::selectContent);
+            } else {
+                siteEntityRepository.deleteAll(siteEntityList);
+                siteEntityList.forEach(siteEntity -> indexGenerations.bump(siteEntity.getId()));
                 newSite = siteEntityRepository.save(createSiteEntity(site.getName(), site.getUrl(), ""));
-                Connection.Response response = null;
+            }
+            if (token.isCancelled()) {
+                saveSiteToDB(newSite, Status.FAILED, "Индексация остановлена пользователем");
+                release();
+                return;
+            }
+            int code = pageFetcher.getStatusCode(site.getUrl());
+            if (code == 0 || code >= 400) {
+                saveSiteToDB(newSite, Status.FAILED, "Ошибка индексации: главная страница сайта не доступна");
+                release();
+                return;
+            }
+            pageQueue = new ArrayBlockingQueue<>(crawlSettings.getQueueCapacity());
+            UrlFrontier frontier = new UrlFrontier(newSite.getUrl(), crawlSettings.getMaxDepth(),
+                    crawlSettings.getMaxPagesPerSite(), crawlSettings.isKeepQuery());
+            SiteCrawl siteCrawl = new SiteCrawl(crawlExecutor, pageQueue,
+                    politenessScheduler.getRateLimiter(newSite.getUrl()), crawlMetrics.start(newSite.getUrl()), frontier,
+                    pageFetcher, knownPages);
+            crawl = siteCrawl.start(new Page(newSite, "/", 0));
+            batch = createBatch(newSite);
+            dictionary = SiteLemmaDictionary.load(newSite.getId(),
+                    lemmaEntityRepository.selectLemmaIdBySiteId(String.valueOf(newSite.getId())));
+            submit(this::drain);
+        }
+
+        /** Запись порции лемматизированных страниц в порядке загрузки с передачей новых загруженных страниц
+         * на лемматизацию. Если ни одна страница не готова, следующая задача ставится по готовности
+         * первой страницы либо, при пустой очереди сайта, откладывается, не занимая поток пула */
+        private void drain() {
+            if (token.isCancelled()) {
+                stop();
+                return;
+            }
+            indexPendingPages();
+            analyzeFetchedPages();
+            int processed = 0;
+            while (processed < schedulerSettings.getSliceSize()
+                    && !analyzedPages.isEmpty() && analyzedPages.peekFirst().isDone()) {
+                savePage(newSite, analyzedPages.pollFirst().join(), knownPages, batch, dictionary);
+                processed++;
+                if (batch.isReadyToFlush()) {
+                    flushBatch(newSite, batch, dictionary);
+                }
+                analyzeFetchedPages();
+            }
+            if (batch.isReadyToFlush()) {
+                flushBatch(newSite, batch, dictionary);
+            }
+            if (crawl.isDone() && pageQueue.isEmpty() && analyzedPages.isEmpty()) {
+                complete();
+            } else if (processed > 0) {
+                submit(this::drain);
+            } else if (!analyzedPages.isEmpty()) {
+                analyzedPages.peekFirst().whenComplete((analyzedPage, e) -> submit(this::drain));
+            } else {
+                indexingScheduler.schedule(IndexingScheduler.Priority.NORMAL, () -> runStep(this::drain),
+                        schedulerSettings.getIdleDelay());
+            }
+        }
+
+        /** Постановка одиночной страницы сайта в очередь задач сайта
+         * @param page {String} принимает в качестве параметра адрес страницы
+         * @param path {String} принимает в качестве параметра путь к странице
+         * @return {CompletableFuture<Boolean>} возвращает результат индексации страницы либо null,
+         * если индексация сайта уже завершена
+         */
+        CompletableFuture<Boolean> indexPage(String page, String path) {
+            synchronized (pendingPages) {
+                if (released.get()) return null;
+                CompletableFuture<Boolean> result = new CompletableFuture<>();
+                pendingPages.addLast(new PendingPage(page, path, result));
+                return result;
+            }
+        }
+
+        /** Индексация ожидающих одиночных страниц со словарем и пакетом сайта. Накопленный пакет записывается
+         * заранее, чтобы в нем не осталось индексов заменяемой страницы; неиспользуемые леммы не удаляются
+         * до завершения индексации сайта */
+        private void indexPendingPages() {
+            PendingPage pendingPage;
+            while ((pendingPage = pollPendingPage()) != null) {
                 try {
-                    response = Jsoup.connect(site.getUrl()).followRedirects(false).execute();
-                } catch (IOException e) {
+                    if (!batch.isEmpty()) flushBatch(newSite, batch, dictionary);
+                    eventPublisher.publishEvent(replacePage(newSite, pendingPage.path(), batch, dictionary));
+                    indexGenerations.bump(newSite.getId());
+                    pendingPage.result().complete(true);
+                } catch (RuntimeException e) {
                     log.error(e.toString());
+                    pendingPage.result().completeExceptionally(e);
                 }
-                int code = 0;
-                if (response != null) code = response.statusCode();
-                if (code >= 400)
-                    saveSiteToDB(newSite, Status.FAILED, "Ошибка индексации: главная страница сайта не доступна");
-                else  indexing(newSite, forkJoinPool);
             }
+        }
 
-            @Override
-            public void interrupt() {
-                saveSiteToDB(newSite, Status.FAILED, "Индексация остановлена пользователем");
-                forkJoinPool.shutdown();
+        private PendingPage pollPendingPage() {
+            synchronized (pendingPages) {
+                return pendingPages.pollFirst();
             }
-        };
-    }
+        }
 
-    /** Получение записи LemmaEntity по странице и лемме
-     * @param pageEntity {PageEntity} Принимает страницу из базы в качестве параметра
-     * @param lemma {String} Принимает лемму в качестве параметра
-     * @return {LemmaEntity} Возвращает LemmaEntity в соответствии с параметрами
-     */
-    public LemmaEntity getLemmaEntity(PageEntity pageEntity, String lemma) {
-        List<Integer> siteIds = new ArrayList<>();
-        siteIds.add(pageEntity.getSite().getId());
-        List<String> lemmas = new ArrayList<>();
-        lemmas.add(lemma);
-        List<LemmaEntity> lemmaFromDB = lemmaEntityRepository.selectLemmaIdBySiteIdAndLemmaOrderByFreq(siteIds, lemmas);
-        LemmaEntity lemmaEntity = new LemmaEntity();
-        int frequency = 1;
-        if (lemmaFromDB.isEmpty()) {
-            lemmaEntity.setSite(pageEntity.getSite());
-            lemmaEntity.setLemma(lemma);
+        /** Передача загруженных страниц на лемматизацию в пределах ограничения страниц сайта в обработке */
+        private void analyzeFetchedPages() {
+            FetchedPage fetchedPage;
+            while (analyzedPages.size() < Math.max(1, lemmatizerSettings.getMaxPagesInFlight())
+                    && (fetchedPage = pageQueue.poll()) != null) {
+                analyzedPages.addLast(lemmatizationStage.analyze(fetchedPage, knownPages.get(fetchedPage.path())));
+            }
         }
-        else {
-            lemmaEntity = lemmaFromDB.get(0);
-            frequency = lemmaEntity.getFrequency() + 1;
+
+        private void complete() {
+            lemmaIndexJdbcRepository.write(batch, dictionary);
+            deleteUnseenPages(newSite, knownPages, dictionary);
+            finish(Status.INDEXED, null);
         }
-        lemmaEntity.setFrequency(frequency);
-        return lemmaEntity;
-    }
 
-    /** получение IndexEntity по списку индексов, лемме и  странице
-     * если в списке есть запись об индексе, возвращается имеющаяся запись,
-     * иначе возвращается новая IndexEntity
-     * @param indexFromDB {List<IndexEntity>} Принимает индекс в качестве параметра
-     * @param lemmaEntity {LemmaEntity} Принимает лемму в качестве параметра
-     * @param pageEntity {PageEntity} Принимает страницу из базы в качестве параметр
-     * @return {IndexEntity} Возвращает IndexEntity в соответствии с параметрами
-     */
-    public IndexEntity getIndexEntityFromDB(List<IndexEntity> indexFromDB, LemmaEntity lemmaEntity, PageEntity pageEntity) {
-        IndexEntity indexEntity = new IndexEntity();
+        /** Остановка по токену отмены: обход прекращается, уже лемматизированные страницы и накопленный
+         * пакет записываются, чтобы у каждой сохраненной страницы были леммы и индексы */
+        private void stop() {
+            crawlExecutor.shutdownNow();
+            while (!analyzedPages.isEmpty() && analyzedPages.peekFirst().isDone()) {
+                savePage(newSite, analyzedPages.pollFirst().join(), knownPages, batch, dictionary);
+            }
+            analyzedPages.forEach(analyzedPage -> analyzedPage.cancel(false));
+            analyzedPages.clear();
+            lemmaIndexJdbcRepository.write(batch, dictionary);
+            batch.clear();
+            finish(Status.FAILED, "Индексация остановлена пользователем");
+        }
+
+        /** Завершение индексации сайта с записью частот лемм, удалением неиспользуемых лемм
+         * и оповещением об изменении индекса. Поколение сайта увеличивается после обработки события
+         * поисковым индексом, иначе кэш сохранил бы под новым поколением результаты по старым сегментам;
+         * ресурсы сайта освобождаются и при ошибке записи */
+        private void finish(Status status, String lastError) {
+            try {
+                if (dictionary != null) lemmaIndexJdbcRepository.writeFrequencies(dictionary);
+                lemmaIndexJdbcRepository.deleteUnusedLemmas(newSite.getId());
+                saveSiteToDB(newSite, status, lastError);
+                eventPublisher.publishEvent(new SiteIndexedEvent(newSite.getId()));
+                indexGenerations.bump(newSite.getId());
+                log.info(newSite.getUrl() + ": скорость обхода " + String.format("%.2f", crawlMetrics.getPagesPerSecond(newSite.getUrl())) + " стр/с");
+            } catch (RuntimeException e) {
+                log.error(e.toString());
+            } finally {
+                release();
+            }
+        }
+
+        /** Освобождение ресурсов сайта, выполняется один раз; после последнего сайта индексация
+         * считается завершенной */
+        private void release() {
+            if (!released.compareAndSet(false, true)) return;
+            crawlExecutor.shutdownNow();
+            siteIndexingMap.remove(site.getUrl(), this);
+            List<PendingPage> leftPages;
+            synchronized (pendingPages) {
+                leftPages = new ArrayList<>(pendingPages);
+                pendingPages.clear();
+            }
+            for (PendingPage pendingPage : leftPages) {
+                indexingScheduler.call(IndexingScheduler.Priority.HIGH, () -> addIndexPage(pendingPage.page()))
+                        .whenComplete((added, e) -> {
+                            if (e != null) pendingPage.result().completeExceptionally(e);
+                            else pendingPage.result().complete(added);
+                        });
+            }
+            if (indexingSites.decrementAndGet() == 0) indexingToken.compareAndSet(token, null);
+        }
 
-        if (indexFromDB.isEmpty()) {
-            indexEntity.setLemma(lemmaEntity);
-            indexEntity.setPage(pageEntity);
+        private void submit(Runnable step) {
+            indexingScheduler.submit(IndexingScheduler.Priority.NORMAL, () -> runStep(step));
         }
-        else {
-            indexEntity = indexFromDB.get(0);
+
+        /** Выполнение шага индексации; при ошибке индексация сайта завершается с состоянием FAILED */
+        void runStep(Runnable step) {
+            try {
+                step.run();
+            } catch (RuntimeException e) {
+                log.error(e.toString());
+                if (released.get()) return;
+                crawlExecutor.shutdownNow();
+                if (newSite == null) {
+                    release();
+                } else {
+                    finish(Status.FAILED, "Ошибка индексации: " + e.getMessage());
+                }
+            }
         }
-        return indexEntity;
     }
 
-    /**  Удаление записей по странице с корректировкой данных по леммам
+    /**  Удаление записей по странице с уменьшением частоты ее лемм в словаре сайта
      * @param siteEntity {SiteEntity} Принимает сайт в качестве параметра
      * @param path {String} Принимает адрес страницы в качестве параметра
+     * @param dictionary {SiteLemmaDictionary} Принимает словарь лемм сайта в качестве параметра
+     * @return {List<Integer>} Возвращает id удаленных страниц
      */
-    public void deletePage(SiteEntity siteEntity, String path) {
-        List<PageEntity> pageEntityList = pageEntityRepository.selectPageIdBySiteIdAndPath(String.valueOf(siteEntity.getId()), path);
-        if (!pageEntityList.isEmpty()) {
-            List<IndexEntity> indexEntityList = indexEntityRepository.selectIndexIdByPageId(String.valueOf(pageEntityList.get(0).getId()));
-            List<LemmaEntity> lemmaEntityList = new ArrayList<>();
-            for (IndexEntity indexEntity : indexEntityList) {
-                lemmaEntityList.add(indexEntity.getLemma());
-            }
-            for (LemmaEntity lemmaEntity : lemmaEntityList) {
-                lemmaEntity.setFrequency(lemmaEntity.getFrequency() - 1);
-            }
-            lemmaEntityRepository.deleteAllById(lemmaEntityRepository.selectByFrequency(0));
-            pageEntityRepository.deleteAll(pageEntityList);
+    private List<Integer> deletePage(SiteEntity siteEntity, String path, SiteLemmaDictionary dictionary) {
+        List<Integer> deletedPageIds = new ArrayList<>();
+        for (PageEntity pageEntity : pageEntityRepository.selectPageIdBySiteIdAndPath(String.valueOf(siteEntity.getId()), path)) {
+            deletedPageIds.add(pageEntity.getId());
         }
+        lemmaIndexJdbcRepository.deletePages(deletedPageIds, dictionary);
+        return deletedPageIds;
     }
 
     /** Создание новой SiteEntity по имени сайта и url,
@@ -297,27 +596,32 @@ public class IndexingServiceImpl implements IndexingService {
      * @param path {String} Принимает путь к страницы в качестве параметра
      * @return {PageEntity} создает новую PageEntity с указаннам адресом
      */
-    public static PageEntity addOnePageToDB(SiteEntity siteEntity, String path) {
-        String url = siteEntity.getUrl() + path;
-        Connection.Response response = null;
-        try {
-            response = Jsoup.connect(url).followRedirects(false).execute();
-        } catch (IOException e) {
-            log.error(e.toString());
-        }
-        int code = 0;
-        if (response != null) {
-            code = response.statusCode();
-        }
-        String content = "";
-        if ((code < 400)&&(response != null)) {
-                content = response.body();
-        }
+    public PageEntity addOnePageToDB(SiteEntity siteEntity, String path) {
+        return createPageEntity(siteEntity, new Page(siteEntity, path, 0).fetch(pageFetcher));
+    }
+
+    /** Создание новой PageEntity по загруженной странице
+     * @param siteEntity {SiteEntity} Принимает сайт в качестве параметра
+     * @param fetchedPage {FetchedPage} Принимает загруженную страницу в качестве параметра
+     * @return {PageEntity} создает новую PageEntity с кодом ответа и содержимым страницы
+     */
+    public static PageEntity createPageEntity(SiteEntity siteEntity, FetchedPage fetchedPage) {
         PageEntity newPage = new PageEntity();
-        newPage.setCode(code);
-        newPage.setContent(content);
-        newPage.setPath(path);
+        newPage.setPath(fetchedPage.path());
         newPage.setSite(siteEntity);
+        fillPageEntity(newPage, fetchedPage);
         return newPage;
     }
-}
\ No newline at end of file
+
+    /** Заполнение PageEntity кодом ответа, содержимым и признаками версии загруженной страницы
+     * @param pageEntity {PageEntity} Принимает страницу в качестве параметра
+     * @param fetchedPage {FetchedPage} Принимает загруженную страницу в качестве параметра
+     */
+    private static void fillPageEntity(PageEntity pageEntity, FetchedPage fetchedPage) {
+        pageEntity.setCode(fetchedPage.code());
+        pageEntity.setContent(fetchedPage.content());
+        pageEntity.setEtag(fetchedPage.etag());
+        pageEntity.setLastModified(fetchedPage.lastModified());
+        pageEntity.setContentHash(fetchedPage.contentHash());
+    }
+}
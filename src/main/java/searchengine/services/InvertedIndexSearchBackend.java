@@ -0,0 +1,531 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import searchengine.config.SearchSettings;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.SearchJdbcRepository;
+import searchengine.repositories.SiteEntityRepository;
+import searchengine.utils.IndexSegment;
+import searchengine.utils.PageIndexedEvent;
+import searchengine.utils.PageMatchHandler;
+import searchengine.utils.PostingList;
+import searchengine.utils.RankingStatistics;
+import searchengine.utils.SegmentWriter;
+import searchengine.utils.SiteIndexedEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Поиск по инвертированному индексу в отображенных в память файлах сегментов. MySQL остается
+ * основным хранилищем: после индексации сайта его индекс выгружается из базы в новый сегмент,
+ * заменяющий прежние, после индексации отдельной страницы дописывается небольшой сегмент
+ * с ее леммами и отметками об удалении прежних записей страницы. Когда сегментов сайта становится
+ * больше заданного, они сливаются в один в фоновом потоке. При запуске сегменты только отображаются
+ * в память, поэтому время запуска не зависит от объема индекса */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "search-settings", name = "backend", havingValue = "memory")
+public class InvertedIndexSearchBackend implements SearchBackend {
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("site-(\\d+)-(\\d+)\\.seg");
+
+    private final SearchJdbcRepository searchJdbcRepository;
+    private final SiteEntityRepository siteEntityRepository;
+    private final SearchSettings searchSettings;
+    /** Сегменты сайтов по id сайта, от старых к новым; списки не изменяются, а заменяются целиком */
+    private final Map<Integer, List<IndexSegment>> siteSegments = new ConcurrentHashMap<>();
+    private final ExecutorService mergeExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicLong generation = new AtomicLong();
+    private Path indexPath;
+
+    /** Открытие сегментов, оставшихся с предыдущего запуска */
+    @PostConstruct
+    public void open() throws IOException {
+        indexPath = Paths.get(searchSettings.getIndexPath());
+        Files.createDirectories(indexPath);
+        Map<Integer, List<IndexSegment>> opened = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(indexPath)) {
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches()) continue;
+                long segmentGeneration = Long.parseLong(matcher.group(2));
+                generation.accumulateAndGet(segmentGeneration, Math::max);
+                try {
+                    opened.computeIfAbsent(Integer.parseInt(matcher.group(1)), id -> new ArrayList<>())
+                            .add(IndexSegment.open(file, segmentGeneration));
+                } catch (IOException e) {
+                    log.error(file + ": " + e + ", сегмент будет пересоздан из базы");
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        for (Map.Entry<Integer, List<IndexSegment>> entry : opened.entrySet()) {
+            entry.getValue().sort(Comparator.comparingLong(IndexSegment::getGeneration));
+            siteSegments.put(entry.getKey(), List.copyOf(entry.getValue()));
+        }
+        log.info("Открыто сегментов индекса: " + opened.values().stream().mapToInt(List::size).sum());
+    }
+
+    /** Выгрузка в сегменты сайтов, проиндексированных без сегментов либо после записи последнего сегмента,
+     * и удаление сегментов сайтов, которых больше нет в базе */
+    @EventListener(ApplicationReadyEvent.class)
+    public void synchronize() {
+        Thread.ofVirtual().name("index-segment-loader").start(() -> {
+            List<SiteEntity> sites = siteEntityRepository.findAll();
+            removeDeletedSites(sites);
+            for (SiteEntity siteEntity : sites) {
+                List<IndexSegment> segments = siteSegments.get(siteEntity.getId());
+                if (segments == null || isOutdated(siteEntity, segments)) writeSiteSegment(siteEntity.getId());
+            }
+        });
+    }
+
+    /** Замена сегментов сайта после окончания его индексации
+     * @param event {SiteIndexedEvent} принимает параметр событие окончания индексации сайта
+     */
+    @EventListener
+    public void onSiteIndexed(SiteIndexedEvent event) {
+        removeDeletedSites(siteEntityRepository.findAll());
+        writeSiteSegment(event.siteId());
+    }
+
+    /** Дописывание сегмента с леммами проиндексированной страницы
+     * @param event {PageIndexedEvent} принимает параметр событие окончания индексации страницы
+     */
+    @EventListener
+    public void onPageIndexed(PageIndexedEvent event) {
+        if (!siteSegments.containsKey(event.siteId())) {
+            writeSiteSegment(event.siteId());
+            return;
+        }
+        IndexSegment segment = writeSegment(event.siteId(), writer -> {
+            writer.addPage(event.pageId());
+            for (int pageId : event.deletedPageIds()) {
+                writer.addDeletedPage(pageId);
+            }
+            searchJdbcRepository.selectPagePostings(event.pageId(), postingWriter(writer));
+        });
+        if (segment == null) return;
+        int segmentCount;
+        synchronized (this) {
+            List<IndexSegment> segments = new ArrayList<>(siteSegments.getOrDefault(event.siteId(), List.of()));
+            segments.add(segment);
+            siteSegments.put(event.siteId(), List.copyOf(segments));
+            segmentCount = segments.size();
+        }
+        if (segmentCount > searchSettings.getMaxSegmentsPerSite()) {
+            mergeExecutor.execute(() -> merge(event.siteId()));
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        mergeExecutor.shutdownNow();
+    }
+
+    @Override
+    public void match(List<Integer> siteIds, List<List<String>> terms, int minimumShouldMatch, PageMatchHandler handler) {
+        float[] termFrequencies = new float[terms.size()];
+        for (int siteId : siteIds) {
+            List<IndexSegment> segments = siteSegments.get(siteId);
+            if (segments == null) continue;
+            for (int i = 0; i < segments.size(); i++) {
+                if (minimumShouldMatch >= terms.size()) {
+                    matchSegment(siteId, segments, i, terms, termFrequencies, handler);
+                } else {
+                    matchSegmentAny(siteId, segments, i, terms, minimumShouldMatch, termFrequencies, handler);
+                }
+            }
+        }
+    }
+
+    /** Статистика сайта по заголовкам и словарям сегментов; перекрытые страницы более старых
+     * сегментов учитываются повторно, для ранжирования это допустимо */
+    @Override
+    public RankingStatistics getStatistics(int siteId, List<List<String>> terms) {
+        List<IndexSegment> segments = siteSegments.getOrDefault(siteId, List.of());
+        int pageCount = 0;
+        long totalLength = 0;
+        int[] documentFrequencies = new int[terms.size()];
+        for (IndexSegment segment : segments) {
+            pageCount += segment.getPageCount();
+            totalLength += segment.getTotalPageLength();
+            for (int i = 0; i < terms.size(); i++) {
+                int frequency = 0;
+                for (String lemma : terms.get(i)) {
+                    PostingList postingList = segment.getPostings(lemma);
+                    if (postingList != null) frequency = Math.max(frequency, postingList.size());
+                }
+                documentFrequencies[i] += frequency;
+            }
+        }
+        return new RankingStatistics(pageCount, pageCount > 0 ? (double) totalLength / pageCount : 0, documentFrequencies);
+    }
+
+    /** Пересечение списков слов запроса в сегменте: курсор самого короткого списка задает
+     * кандидата, остальные курсоры переходят к нему по указателям пропуска. Страницы, перекрытые
+     * более новыми сегментами, пропускаются. Когда у обработчика появляется порог, диапазоны страниц,
+     * в которых сумма границ вклада слов по наибольшим рангам блоков меньше порога, пропускаются целиком
+     * @param siteId {int} принимает параметр id сайта
+     * @param segments {List<IndexSegment>} принимает параметр сегменты сайта
+     * @param segmentIndex {int} принимает параметр номер сегмента, в котором идет поиск
+     * @param terms {List<List<String>>} принимает параметр слова запроса в виде списков их лемм
+     * @param termFrequencies {float[]} принимает параметр массив для рангов слов найденной страницы
+     * @param handler {PageMatchHandler} принимает параметр обработчик найденных страниц
+     */
+    private static void matchSegment(int siteId, List<IndexSegment> segments, int segmentIndex, List<List<String>> terms,
+                                     float[] termFrequencies, PageMatchHandler handler) {
+        IndexSegment segment = segments.get(segmentIndex);
+        PostingList.Cursor[] cursors = new PostingList.Cursor[terms.size()];
+        int[] sizes = new int[terms.size()];
+        Integer[] order = new Integer[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            List<PostingList> forms = getForms(segment, terms.get(i));
+            if (forms.isEmpty()) return;
+            for (PostingList form : forms) sizes[i] += form.size();
+            cursors[i] = PostingList.cursor(forms);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> sizes[i]));
+        PostingList.Cursor lead = cursors[order[0]];
+        if (!lead.next()) return;
+        int target = lead.pageId();
+        float blockBound = 0;
+        int blockEnd = -1;
+        candidates:
+        while (true) {
+            checkInterrupted();
+            float threshold = handler.getThreshold();
+            if (threshold > Float.NEGATIVE_INFINITY) {
+                if (target > blockEnd) {
+                    blockBound = 0;
+                    blockEnd = PostingList.NO_MORE_PAGES - 1;
+                    for (int term : order) {
+                        blockBound += handler.getUpperBound(term, cursors[term].blockMaxRank(target));
+                        blockEnd = Math.min(blockEnd, cursors[term].blockEnd());
+                    }
+                }
+                if (blockBound < threshold) {
+                    handler.markEstimated();
+                    if (blockEnd >= PostingList.NO_MORE_PAGES - 1 || !lead.advance(blockEnd + 1)) return;
+                    target = lead.pageId();
+                    continue;
+                }
+            }
+            termFrequencies[order[0]] = lead.rank();
+            for (int i = 1; i < order.length; i++) {
+                PostingList.Cursor cursor = cursors[order[i]];
+                if (!cursor.advance(target)) return;
+                if (cursor.pageId() != target) {
+                    if (!lead.advance(cursor.pageId())) return;
+                    target = lead.pageId();
+                    continue candidates;
+                }
+                termFrequencies[order[i]] = cursor.rank();
+            }
+            if (isLive(segments, segmentIndex, target)) {
+                handler.offer(siteId, target, termFrequencies, Math.max(segment.getPageLength(target), 0));
+            }
+            if (!lead.next()) return;
+            target = lead.pageId();
+        }
+    }
+
+    /** Объединение списков слов запроса в сегменте с отсечением MaxScore: слова упорядочены по верхней
+     * границе вклада, вычисленной по наибольшему рангу, сохраненному в списке; слова, сумма границ которых
+     * меньше порога обработчика, считаются необязательными - кандидаты берутся только из списков остальных
+     * слов, а необязательные курсоры лишь переходят к кандидату. Страница принимается, если на ней
+     * не меньше minimumShouldMatch слов
+     * @param siteId {int} принимает параметр id сайта
+     * @param segments {List<IndexSegment>} принимает параметр сегменты сайта
+     * @param segmentIndex {int} принимает параметр номер сегмента, в котором идет поиск
+     * @param terms {List<List<String>>} принимает параметр слова запроса в виде списков их лемм
+     * @param minimumShouldMatch {int} принимает параметр наименьшее количество слов запроса на странице
+     * @param termFrequencies {float[]} принимает параметр массив для рангов слов найденной страницы
+     * @param handler {PageMatchHandler} принимает параметр обработчик найденных страниц
+     */
+    private static void matchSegmentAny(int siteId, List<IndexSegment> segments, int segmentIndex, List<List<String>> terms,
+                                        int minimumShouldMatch, float[] termFrequencies, PageMatchHandler handler) {
+        IndexSegment segment = segments.get(segmentIndex);
+        Arrays.fill(termFrequencies, 0);
+        PostingList.Cursor[] cursors = new PostingList.Cursor[terms.size()];
+        float[] upperBounds = new float[terms.size()];
+        List<Integer> present = new ArrayList<>();
+        for (int i = 0; i < terms.size(); i++) {
+            List<PostingList> forms = getForms(segment, terms.get(i));
+            if (forms.isEmpty()) continue;
+            PostingList.Cursor cursor = PostingList.cursor(forms);
+            if (!cursor.next()) continue;
+            float maxRank = 0;
+            for (PostingList form : forms) maxRank = Math.max(maxRank, form.getMaxRank());
+            cursors[i] = cursor;
+            upperBounds[i] = handler.getUpperBound(i, maxRank);
+            present.add(i);
+        }
+        present.sort(Comparator.comparingDouble(i -> upperBounds[i]));
+        int[] order = present.stream().mapToInt(Integer::intValue).toArray();
+        int active = order.length;
+        while (active >= minimumShouldMatch) {
+            checkInterrupted();
+            float threshold = handler.getThreshold();
+            int essential = 0;
+            double optionalBound = 0;
+            while (essential < order.length && optionalBound + upperBounds[order[essential]] < threshold) {
+                optionalBound += upperBounds[order[essential++]];
+            }
+            if (essential > 0) handler.markEstimated();
+            int target = PostingList.NO_MORE_PAGES;
+            for (int i = essential; i < order.length; i++) {
+                if (cursors[order[i]] != null) target = Math.min(target, cursors[order[i]].pageId());
+            }
+            if (target == PostingList.NO_MORE_PAGES) return;
+            int matched = 0;
+            for (int term : order) {
+                termFrequencies[term] = 0;
+                PostingList.Cursor cursor = cursors[term];
+                if (cursor == null || !cursor.advance(target)) {
+                    if (cursor != null) {
+                        cursors[term] = null;
+                        active--;
+                    }
+                    continue;
+                }
+                if (cursor.pageId() != target) continue;
+                termFrequencies[term] = cursor.rank();
+                matched++;
+                if (!cursor.next()) {
+                    cursors[term] = null;
+                    active--;
+                }
+            }
+            if (matched >= minimumShouldMatch && isLive(segments, segmentIndex, target)) {
+                handler.offer(siteId, target, termFrequencies, Math.max(segment.getPageLength(target), 0));
+            }
+        }
+    }
+
+    /** Прерывание поиска шарда, не ответившего за search-settings.shard-timeout: поток освобождается,
+     * не дожидаясь конца списков */
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) throw new CancellationException("Поиск по сайту прерван");
+    }
+
+    /** Списки вхождений форм слова в сегменте */
+    private static List<PostingList> getForms(IndexSegment segment, List<String> term) {
+        List<PostingList> forms = new ArrayList<>();
+        for (String lemma : term) {
+            PostingList postingList = segment.getPostings(lemma);
+            if (postingList != null && postingList.size() > 0) forms.add(postingList);
+        }
+        return forms;
+    }
+
+    /** Страница сегмента действительна, если ее нет в более новых сегментах сайта */
+    private static boolean isLive(List<IndexSegment> segments, int segmentIndex, int pageId) {
+        for (int i = segmentIndex + 1; i < segments.size(); i++) {
+            if (segments.get(i).containsPage(pageId)) return false;
+        }
+        return true;
+    }
+
+    /** Выгрузка индекса сайта из базы в новый сегмент, заменяющий все прежние сегменты сайта
+     * @param siteId {int} принимает параметр id сайта
+     */
+    private void writeSiteSegment(int siteId) {
+        long start = System.currentTimeMillis();
+        IndexSegment segment = writeSegment(siteId,
+                writer -> searchJdbcRepository.selectSitePostings(siteId, postingWriter(writer)));
+        if (segment == null) return;
+        List<IndexSegment> replaced;
+        synchronized (this) {
+            replaced = siteSegments.put(siteId, List.of(segment));
+        }
+        deleteFiles(replaced);
+        log.info("Сегмент индекса сайта " + siteId + ": лемм " + segment.getLemmaCount() + ", страниц "
+                + segment.getPageCount() + ", " + segment.getSize() / 1024 + " КБ, "
+                + (System.currentTimeMillis() - start) + " мс");
+    }
+
+    /** Слияние всех сегментов сайта в один: перекрытые страницы и отметки об удалении отбрасываются
+     * @param siteId {int} принимает параметр id сайта
+     */
+    private void merge(int siteId) {
+        List<IndexSegment> segments = siteSegments.get(siteId);
+        if (segments == null || segments.size() <= 1) return;
+        IndexSegment merged = writeSegment(siteId, writer -> {
+            TreeSet<String> lemmas = new TreeSet<>();
+            for (IndexSegment segment : segments) {
+                for (int i = 0; i < segment.getLemmaCount(); i++) lemmas.add(segment.getLemma(i));
+            }
+            for (String lemma : lemmas) {
+                writer.addPostings(lemma, mergePostings(segments, lemma));
+            }
+            for (int s = 0; s < segments.size(); s++) {
+                IndexSegment segment = segments.get(s);
+                for (int i = 0; i < segment.getPageCount(); i++) {
+                    int pageId = segment.getPageId(i);
+                    if (segment.getPageLengthAt(i) != IndexSegment.DELETED_PAGE && isLive(segments, s, pageId)) {
+                        writer.addPage(pageId);
+                    }
+                }
+            }
+        });
+        if (merged == null) return;
+        synchronized (this) {
+            List<IndexSegment> current = siteSegments.get(siteId);
+            if (current == null || current.size() < segments.size()
+                    || !current.subList(0, segments.size()).equals(segments)) {
+                deleteFiles(List.of(merged));
+                return;
+            }
+            List<IndexSegment> updated = new ArrayList<>();
+            updated.add(merged);
+            updated.addAll(current.subList(segments.size(), current.size()));
+            siteSegments.put(siteId, List.copyOf(updated));
+        }
+        deleteFiles(segments);
+        log.info("Слито сегментов индекса сайта " + siteId + ": " + segments.size());
+    }
+
+    /** Объединение действительных вхождений леммы из всех сегментов сайта */
+    private static PostingList mergePostings(List<IndexSegment> segments, String lemma) {
+        long[] entries = new long[16];
+        int count = 0;
+        for (int s = 0; s < segments.size(); s++) {
+            PostingList postingList = segments.get(s).getPostings(lemma);
+            if (postingList == null) continue;
+            PostingList.Cursor cursor = postingList.cursor();
+            while (cursor.next()) {
+                if (!isLive(segments, s, cursor.pageId())) continue;
+                if (count == entries.length) entries = Arrays.copyOf(entries, count * 2);
+                entries[count++] = ((long) cursor.pageId() << 32) | (Float.floatToIntBits(cursor.rank()) & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(entries, 0, count);
+        PostingList.Builder builder = new PostingList.Builder();
+        for (int i = 0; i < count; i++) {
+            builder.add((int) (entries[i] >>> 32), Float.intBitsToFloat((int) entries[i]));
+        }
+        return builder.build();
+    }
+
+    @FunctionalInterface
+    private interface SegmentContent {
+        void write(SegmentWriter writer) throws IOException;
+    }
+
+    /** Запись и открытие нового сегмента сайта
+     * @return {IndexSegment} возвращает открытый сегмент либо null при ошибке записи
+     */
+    private IndexSegment writeSegment(int siteId, SegmentContent content) {
+        long segmentGeneration = generation.incrementAndGet();
+        Path file = indexPath.resolve("site-" + siteId + "-" + segmentGeneration + ".seg");
+        try {
+            try (SegmentWriter writer = new SegmentWriter(file, siteId)) {
+                content.write(writer);
+                writer.finish();
+            }
+            return IndexSegment.open(file, segmentGeneration);
+        } catch (IOException | RuntimeException e) {
+            log.error(file + ": " + e);
+            return null;
+        }
+    }
+
+    /** Обработчик строк индекса из базы: вхождения одной леммы собираются в список и пишутся в сегмент */
+    private static SearchJdbcRepository.PostingHandler postingWriter(SegmentWriter writer) {
+        return new SearchJdbcRepository.PostingHandler() {
+            private int lemmaId = -1;
+            private String lemma;
+            private PostingList.Builder builder = new PostingList.Builder();
+
+            @Override
+            public void accept(int rowLemmaId, String rowLemma, int pageId, float rank) {
+                if (rowLemmaId != lemmaId) {
+                    flush();
+                    lemmaId = rowLemmaId;
+                    lemma = rowLemma;
+                }
+                builder.add(pageId, rank);
+            }
+
+            @Override
+            public void finish() {
+                flush();
+            }
+
+            private void flush() {
+                if (builder.isEmpty()) return;
+                try {
+                    writer.addPostings(lemma, builder.build());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                builder = new PostingList.Builder();
+            }
+        };
+    }
+
+    private boolean isOutdated(SiteEntity siteEntity, List<IndexSegment> segments) {
+        try {
+            long segmentTime = Files.getLastModifiedTime(segments.get(segments.size() - 1).getFile()).toMillis();
+            long siteTime = siteEntity.getStatus_time().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return siteTime > segmentTime;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private void removeDeletedSites(List<SiteEntity> sites) {
+        List<Integer> siteIds = new ArrayList<>();
+        for (SiteEntity siteEntity : sites) {
+            siteIds.add(siteEntity.getId());
+        }
+        for (Integer siteId : List.copyOf(siteSegments.keySet())) {
+            if (!siteIds.contains(siteId)) deleteFiles(siteSegments.remove(siteId));
+        }
+    }
+
+    /** Удаление файлов замененных сегментов; уже открытые отображения остаются действительными */
+    private static void deleteFiles(List<IndexSegment> segments) {
+        if (segments == null) return;
+        for (IndexSegment segment : segments) {
+            try {
+                Files.deleteIfExists(segment.getFile());
+            } catch (IOException e) {
+                log.error(e.toString());
+            }
+        }
+    }
+}
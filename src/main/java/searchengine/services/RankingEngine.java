@@ -0,0 +1,429 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import searchengine.config.SearchSettings;
+import searchengine.dto.search.RankedPage;
+import searchengine.dto.search.RankedPages;
+import searchengine.repositories.SearchJdbcRepository;
+import searchengine.utils.PageMatchHandler;
+import searchengine.utils.PageTokens;
+import searchengine.utils.PositionMatcher;
+import searchengine.utils.RankingStatistics;
+import searchengine.utils.Scorer;
+import searchengine.utils.SearchQuery;
+import searchengine.utils.TopKCollector;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/** Ранжирование страниц, отобранных механизмом поиска. Каждый сайт - отдельный шард: шарды обрабатываются
+ * параллельно в ограниченном пуле потоков, каждый возвращает свои offset + limit лучших страниц, которые
+ * сливаются k-путевым слиянием по куче. Шарды, не ответившие за search-settings.shard-timeout, пропускаются,
+ * а результат помечается как неполный. В шарде каждая страница оценивается функцией ранжирования,
+ * в ограниченной куче на примитивных массивах остаются только лучшие страницы.
+ * Позиционные условия запроса (фразы, NEAR/k) проверяются по спискам позиций слов, которые читаются
+ * пачками для отобранных страниц; релевантность увеличивается за близость слов запроса на странице.
+ * Слова запроса передаются механизму поиска по возрастанию частоты на сайте, слишком частые слова
+ * без позиционных условий отбрасываются; механизм поиска может отсекать страницы по порогу кучи (MaxScore) */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RankingEngine {
+
+    /** Количество страниц, позиции слов которых читаются одним запросом */
+    private static final int POSITIONS_CHUNK_SIZE = 500;
+
+    private final SearchBackend searchBackend;
+    private final SearchJdbcRepository searchJdbcRepository;
+    private final SearchSettings searchSettings;
+    private ExecutorService shardExecutor;
+
+    /** Лучшие страницы шарда
+     * @param pageIds {int[]} id страниц по убыванию релевантности
+     * @param scores {float[]} релевантность страниц
+     * @param total {int} количество найденных на сайте страниц
+     * @param estimated {boolean} количество - нижняя оценка из-за отсечения страниц по порогу
+     */
+    private record ShardResult(int[] pageIds, float[] scores, int total, boolean estimated) {
+    }
+
+    @PostConstruct
+    public void start() {
+        shardExecutor = Executors.newFixedThreadPool(Math.max(1, searchSettings.getShardThreads()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shardExecutor.shutdownNow();
+    }
+
+    /** Поиск и ранжирование страниц
+     * @param siteIds {List<Integer>} принимает параметр список id сайтов
+     * @param query {SearchQuery} принимает параметр разобранный запрос
+     * @param scorer {Scorer} принимает параметр функция ранжирования
+     * @param offset {int} принимает параметр сдвиг от начала списка результатов
+     * @param limit {int} принимает параметр количество результатов
+     * @return {RankedPages} возвращает страницы заданного диапазона по убыванию релевантности,
+     * общее количество найденных страниц и признак неполного результата
+     */
+    public RankedPages rank(List<Integer> siteIds, SearchQuery query, Scorer scorer, int offset, int limit) {
+        if (siteIds.isEmpty() || query.getTerms().isEmpty()) return new RankedPages(List.of(), 0, false, false);
+        List<Callable<ShardResult>> shards = new ArrayList<>();
+        for (int siteId : siteIds) {
+            shards.add(() -> rankShard(siteId, query, scorer, offset + limit));
+        }
+        List<Future<ShardResult>> futures;
+        try {
+            futures = shardExecutor.invokeAll(shards, searchSettings.getShardTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error(e.toString());
+            return new RankedPages(List.of(), 0, false, true);
+        }
+        List<ShardResult> results = new ArrayList<>();
+        boolean partial = false;
+        for (Future<ShardResult> future : futures) {
+            if (future.isCancelled()) {
+                partial = true;
+                continue;
+            }
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                partial = true;
+            } catch (ExecutionException e) {
+                log.error(e.getCause().toString());
+                partial = true;
+            }
+        }
+        return merge(results, offset, limit, partial);
+    }
+
+    /** Слияние лучших страниц шардов кучей по текущей странице каждого шарда; при равной релевантности
+     * первой идет страница с меньшим id, как в куче шарда. Релевантность нормируется по лучшей странице всех шардов
+     * @param results {List<ShardResult>} принимает параметр результаты шардов
+     * @param offset {int} принимает параметр сдвиг от начала списка результатов
+     * @param limit {int} принимает параметр количество результатов
+     * @param partial {boolean} принимает параметр признак неполного результата
+     * @return {RankedPages} возвращает страницы заданного диапазона
+     */
+    private static RankedPages merge(List<ShardResult> results, int offset, int limit, boolean partial) {
+        PriorityQueue<int[]> heap = new PriorityQueue<>((a, b) -> {
+            int compare = Float.compare(results.get(b[0]).scores()[b[1]], results.get(a[0]).scores()[a[1]]);
+            return compare != 0 ? compare
+                    : Integer.compare(results.get(a[0]).pageIds()[a[1]], results.get(b[0]).pageIds()[b[1]]);
+        });
+        int total = 0;
+        boolean estimated = false;
+        float max = 0;
+        for (int i = 0; i < results.size(); i++) {
+            ShardResult result = results.get(i);
+            total += result.total();
+            estimated |= result.estimated();
+            if (result.pageIds().length == 0) continue;
+            max = Math.max(max, result.scores()[0]);
+            heap.add(new int[]{i, 0});
+        }
+        List<RankedPage> pages = new ArrayList<>();
+        for (int rank = 0; rank < offset + limit && !heap.isEmpty(); rank++) {
+            int[] head = heap.poll();
+            ShardResult result = results.get(head[0]);
+            if (rank >= offset) {
+                float score = result.scores()[head[1]];
+                pages.add(new RankedPage(result.pageIds()[head[1]], max > 0 ? score / max : 0));
+            }
+            if (++head[1] < result.pageIds().length) heap.add(head);
+        }
+        return new RankedPages(pages, total, estimated, partial);
+    }
+
+    /** Поиск и ранжирование страниц одного сайта
+     * @param siteId {int} принимает параметр id сайта
+     * @param query {SearchQuery} принимает параметр разобранный запрос
+     * @param scorer {Scorer} принимает параметр функция ранжирования
+     * @param size {int} принимает параметр количество лучших страниц
+     * @return {ShardResult} возвращает не больше size лучших страниц сайта по убыванию релевантности
+     */
+    private ShardResult rankShard(int siteId, SearchQuery query, Scorer scorer, int size) {
+        RankingStatistics siteStatistics = searchBackend.getStatistics(siteId, query.getTerms());
+        int[] selected = selectTerms(query, siteStatistics);
+        List<List<String>> terms = new ArrayList<>();
+        int[] documentFrequencies = new int[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            terms.add(query.getTerms().get(selected[i]));
+            documentFrequencies[i] = siteStatistics.documentFrequencies()[selected[i]];
+        }
+        RankingStatistics statistics = new RankingStatistics(siteStatistics.pageCount(), siteStatistics.averageLength(),
+                documentFrequencies);
+        int minimumShouldMatch = query.getMinimumShouldMatch() >= query.getTerms().size()
+                ? terms.size() : Math.min(query.getMinimumShouldMatch(), terms.size());
+        boolean rescore = !query.isPositional() && terms.size() > 1 && searchSettings.getProximityWeight() > 0;
+        TopKCollector collector = new TopKCollector(rescore ? Math.max(size, searchSettings.getProximityWindow()) : size);
+        List<Integer> site = List.of(siteId);
+        boolean estimated;
+        if (query.isPositional()) {
+            PositionalMatches matches = new PositionalMatches(query, scorer, statistics, collector);
+            searchBackend.match(site, terms, minimumShouldMatch, matches);
+            matches.flush();
+            estimated = matches.estimated;
+        } else {
+            ScoringMatches matches = new ScoringMatches(scorer, statistics, collector);
+            searchBackend.match(site, terms, minimumShouldMatch, matches);
+            estimated = matches.estimated;
+        }
+        int count = collector.sort();
+        int[] pageIds = new int[count];
+        float[] scores = new float[count];
+        for (int i = 0; i < count; i++) {
+            pageIds[i] = collector.getPageId(i);
+            scores[i] = collector.getScore(i);
+        }
+        if (rescore) rescoreByProximity(query, pageIds, scores, Math.min(count, searchSettings.getProximityWindow()));
+        int resultSize = Math.min(count, size);
+        return new ShardResult(Arrays.copyOf(pageIds, resultSize), Arrays.copyOf(scores, resultSize), collector.getTotal(),
+                estimated);
+    }
+
+    /** Выбор слов запроса для сайта: слова упорядочиваются по возрастанию количества страниц с ними,
+     * слова, встречающиеся на большей доле страниц сайта, чем search-settings.max-lemma-frequency-percent,
+     * отбрасываются, если не входят во фразы и условия NEAR/k. Самое редкое слово остается всегда
+     * @param query {SearchQuery} принимает параметр разобранный запрос
+     * @param statistics {RankingStatistics} принимает параметр статистика сайта по всем словам запроса
+     * @return {int[]} возвращает номера выбранных слов запроса по возрастанию частоты
+     */
+    private int[] selectTerms(SearchQuery query, RankingStatistics statistics) {
+        int[] documentFrequencies = statistics.documentFrequencies();
+        Integer[] order = new Integer[documentFrequencies.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(documentFrequencies[a], documentFrequencies[b]));
+        Set<Integer> positional = new HashSet<>();
+        query.getPhrases().forEach(phrase -> phrase.forEach(phraseTerm -> positional.add(phraseTerm.term())));
+        query.getNears().forEach(near -> {
+            positional.add(near.left());
+            positional.add(near.right());
+        });
+        double limit = statistics.pageCount() * searchSettings.getMaxLemmaFrequencyPercent() / 100.0;
+        int[] selected = new int[order.length];
+        int count = 0;
+        for (int term : order) {
+            boolean common = statistics.pageCount() > 0 && documentFrequencies[term] > limit;
+            if (count == 0 || !common || positional.contains(term)) selected[count++] = term;
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    /** Переоценка лучших страниц по близости слов запроса и их пересортировка
+     * @param query {SearchQuery} принимает параметр разобранный запрос
+     * @param pageIds {int[]} принимает параметр id страниц по убыванию релевантности
+     * @param scores {float[]} принимает параметр релевантность страниц
+     * @param window {int} принимает параметр количество переоцениваемых страниц
+     */
+    private void rescoreByProximity(SearchQuery query, int[] pageIds, float[] scores, int window) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < window; i++) {
+            ids.add(pageIds[i]);
+        }
+        Map<Integer, Map<String, byte[]>> positions = searchJdbcRepository.selectPositions(ids, getLemmas(query));
+        Integer[] order = new Integer[window];
+        for (int i = 0; i < window; i++) {
+            order[i] = i;
+            List<int[]> termPositions = getTermPositions(query, positions.getOrDefault(pageIds[i], Map.of()));
+            scores[i] *= getProximityBoost(termPositions);
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+        int[] sortedIds = new int[window];
+        float[] sortedScores = new float[window];
+        for (int i = 0; i < window; i++) {
+            sortedIds[i] = pageIds[order[i]];
+            sortedScores[i] = scores[order[i]];
+        }
+        System.arraycopy(sortedIds, 0, pageIds, 0, window);
+        System.arraycopy(sortedScores, 0, scores, 0, window);
+    }
+
+    /** Множитель релевантности за близость слов: 1 + вес * (количество слов - 1) / ширина наименьшего окна,
+     * содержащего все найденные слова запроса */
+    private float getProximityBoost(List<int[]> termPositions) {
+        List<int[]> present = new ArrayList<>();
+        for (int[] positions : termPositions) {
+            if (positions.length > 0) present.add(positions);
+        }
+        if (present.size() < 2) return 1;
+        int[] window = PositionMatcher.findMinWindow(present);
+        int span = Math.max(window[1] - window[0], 1);
+        return 1 + searchSettings.getProximityWeight() * Math.min(1f, (float) (present.size() - 1) / span);
+    }
+
+    private static Set<String> getLemmas(SearchQuery query) {
+        Set<String> lemmas = new HashSet<>();
+        query.getTerms().forEach(lemmas::addAll);
+        return lemmas;
+    }
+
+    /** Позиции каждого слова запроса на странице
+     * @param query {SearchQuery} принимает параметр разобранный запрос
+     * @param storedPositions {Map<String, byte[]>} принимает параметр закодированные позиции лемм на странице
+     * @return {List<int[]>} возвращает позиции слов в порядке слов запроса, пустые для отсутствующих слов
+     */
+    private static List<int[]> getTermPositions(SearchQuery query, Map<String, byte[]> storedPositions) {
+        Map<String, int[]> lemmaPositions = new HashMap<>();
+        storedPositions.forEach((lemma, positions) -> lemmaPositions.put(lemma, PageTokens.decode(positions)));
+        List<int[]> termPositions = new ArrayList<>();
+        for (List<String> term : query.getTerms()) {
+            termPositions.add(PositionMatcher.getTermPositions(term, lemmaPositions));
+        }
+        return termPositions;
+    }
+
+    /** Проверка фраз и условий NEAR/k запроса по позициям слов на странице */
+    private static boolean matchesPositions(SearchQuery query, List<int[]> termPositions) {
+        for (List<SearchQuery.PhraseTerm> phrase : query.getPhrases()) {
+            int[][] positions = new int[phrase.size()][];
+            int[] offsets = new int[phrase.size()];
+            for (int i = 0; i < phrase.size(); i++) {
+                positions[i] = termPositions.get(phrase.get(i).term());
+                offsets[i] = phrase.get(i).offset();
+            }
+            if (!PositionMatcher.containsPhrase(positions, offsets)) return false;
+        }
+        for (SearchQuery.Near near : query.getNears()) {
+            if (!PositionMatcher.isNear(termPositions.get(near.left()), termPositions.get(near.right()), near.distance())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Обработчик страниц запроса без позиционных условий: оценка страницы и отбор в кучу; после
+     * search-settings.exact-count-threshold найденных страниц порог кучи и границы вклада слов передаются
+     * механизму поиска для отсечения страниц. Страницы, отсеченные по своей границе, только учитываются */
+    private final class ScoringMatches implements PageMatchHandler {
+        private final Scorer scorer;
+        private final RankingStatistics statistics;
+        private final TopKCollector collector;
+        private boolean estimated = false;
+
+        ScoringMatches(Scorer scorer, RankingStatistics statistics, TopKCollector collector) {
+            this.scorer = scorer;
+            this.statistics = statistics;
+            this.collector = collector;
+        }
+
+        @Override
+        public void accept(int siteId, int pageId, float[] termFrequencies, int length) {
+            collector.offer(pageId, scorer.score(termFrequencies, length, statistics));
+        }
+
+        @Override
+        public void skip(int siteId, int pageId) {
+            collector.count();
+        }
+
+        @Override
+        public void markEstimated() {
+            estimated = true;
+        }
+
+        @Override
+        public float getThreshold() {
+            return collector.getTotal() < searchSettings.getExactCountThreshold()
+                    ? Float.NEGATIVE_INFINITY : collector.getThreshold();
+        }
+
+        @Override
+        public float getUpperBound(int term, float maxFrequency) {
+            return scorer.upperBound(term, maxFrequency, statistics);
+        }
+    }
+
+    /** Обработчик страниц запроса с позиционными условиями: страницы копятся пачкой, для пачки одним запросом
+     * читаются позиции слов, страницы, прошедшие проверку, оцениваются с учетом близости слов. Страницы,
+     * отсеченные по порогу, не проверяются по позициям, поэтому не учитываются, и количество становится оценкой */
+    private final class PositionalMatches implements PageMatchHandler {
+        private final SearchQuery query;
+        private final Scorer scorer;
+        private final RankingStatistics statistics;
+        private final TopKCollector collector;
+        private final Set<String> lemmas;
+        private final int[] pageIds = new int[POSITIONS_CHUNK_SIZE];
+        private final int[] lengths = new int[POSITIONS_CHUNK_SIZE];
+        private final float[][] frequencies;
+        private int size = 0;
+        private boolean estimated = false;
+
+        PositionalMatches(SearchQuery query, Scorer scorer, RankingStatistics statistics,
+                          TopKCollector collector) {
+            this.query = query;
+            this.scorer = scorer;
+            this.statistics = statistics;
+            this.collector = collector;
+            this.lemmas = getLemmas(query);
+            this.frequencies = new float[POSITIONS_CHUNK_SIZE][statistics.documentFrequencies().length];
+        }
+
+        @Override
+        public void accept(int siteId, int pageId, float[] termFrequencies, int length) {
+            pageIds[size] = pageId;
+            lengths[size] = length;
+            System.arraycopy(termFrequencies, 0, frequencies[size], 0, termFrequencies.length);
+            if (++size == POSITIONS_CHUNK_SIZE) flush();
+        }
+
+        void flush() {
+            if (size == 0) return;
+            List<Integer> ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ids.add(pageIds[i]);
+            }
+            Map<Integer, Map<String, byte[]>> positions = searchJdbcRepository.selectPositions(ids, lemmas);
+            for (int i = 0; i < size; i++) {
+                List<int[]> termPositions = getTermPositions(query, positions.getOrDefault(pageIds[i], Map.of()));
+                if (!matchesPositions(query, termPositions)) continue;
+                float score = scorer.score(frequencies[i], lengths[i], statistics);
+                collector.offer(pageIds[i], score * getProximityBoost(termPositions));
+            }
+            size = 0;
+        }
+
+        @Override
+        public void skip(int siteId, int pageId) {
+            estimated = true;
+        }
+
+        @Override
+        public void markEstimated() {
+            estimated = true;
+        }
+
+        @Override
+        public float getThreshold() {
+            return collector.getTotal() < searchSettings.getExactCountThreshold()
+                    ? Float.NEGATIVE_INFINITY : collector.getThreshold();
+        }
+
+        /** Граница учитывает наибольшее увеличение релевантности за близость слов */
+        @Override
+        public float getUpperBound(int term, float maxFrequency) {
+            return scorer.upperBound(term, maxFrequency, statistics) * (1 + searchSettings.getProximityWeight());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package searchengine.services;
+
+import searchengine.utils.PageMatchHandler;
+import searchengine.utils.RankingStatistics;
+
+import java.util.List;
+
+/** Механизм отбора страниц по леммам запроса. Реализация выбирается параметром
+ * search-settings.backend в application.yaml, ранжирование выполняет {@link RankingEngine} */
+public interface SearchBackend {
+
+    /** Отбор страниц, содержащих не меньше minimumShouldMatch слов запроса хотя бы в одной из их нормальных форм.
+     * Ранг слова на странице - наибольший ранг его форм, для отсутствующего слова 0
+     * @param siteIds {List<Integer>} принимает параметр список id сайтов
+     * @param terms {List<List<String>>} принимает параметр слова запроса в виде списков их лемм
+     * @param minimumShouldMatch {int} принимает параметр наименьшее количество слов запроса на странице
+     * @param handler {PageMatchHandler} принимает параметр обработчик найденных страниц
+     */
+    void match(List<Integer> siteIds, List<List<String>> terms, int minimumShouldMatch, PageMatchHandler handler);
+
+    /** Статистика сайта для ранжирования по словам запроса
+     * @param siteId {int} принимает параметр id сайта
+     * @param terms {List<List<String>>} принимает параметр слова запроса в виде списков их лемм
+     * @return {RankingStatistics} возвращает количество и среднюю длину страниц сайта и частоты слов
+     */
+    RankingStatistics getStatistics(int siteId, List<List<String>> terms);
+}
@@ -0,0 +1,20 @@
+package searchengine.services;
+
+import searchengine.dto.search.SearchData;
+
+/** Получатель результатов поиска по мере их готовности: сначала количество найденных страниц,
+ * затем страницы по убыванию релевантности, каждая сразу после построения ее сниппета */
+public interface SearchResultListener {
+
+    /** Количество найденных страниц
+     * @param count {int} принимает параметр общее количество найденных страниц
+     * @param estimated {boolean} принимает параметр признак того, что количество - нижняя оценка
+     * @param partial {boolean} принимает параметр признак неполного результата
+     */
+    void onCount(int count, boolean estimated, boolean partial);
+
+    /** Очередная страница результата
+     * @param data {SearchData} принимает параметр данные страницы
+     */
+    void onResult(SearchData data);
+}
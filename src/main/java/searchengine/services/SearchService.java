@@ -1,7 +1,20 @@
 package searchengine.services;
 
+import searchengine.dto.search.RankingParameters;
 import searchengine.dto.search.SearchResponse;
 
 public interface SearchService {
-    SearchResponse search(String query, String site, int offset, int limit);
+    default SearchResponse search(String query, String site, int offset, int limit) {
+        return search(query, site, offset, limit, new RankingParameters());
+    }
+
+    default SearchResponse search(String query, String site, int offset, int limit, RankingParameters rankingParameters) {
+        return search(query, site, offset, limit, rankingParameters, null);
+    }
+
+    /** Поиск с передачей результатов получателю по мере их готовности
+     * @param listener {SearchResultListener} принимает параметр получатель результатов либо null
+     */
+    SearchResponse search(String query, String site, int offset, int limit, RankingParameters rankingParameters,
+                          SearchResultListener listener);
 }
@@ -3,32 +3,45 @@ package searchengine.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import searchengine.config.SearchSettings;
+import searchengine.dto.search.RankedPage;
+import searchengine.dto.search.RankedPages;
+import searchengine.dto.search.RankingParameters;
 import searchengine.dto.search.SearchData;
 import searchengine.dto.search.SearchResponse;
 import searchengine.dto.search.SearchResponseError;
 import searchengine.dto.search.SearchResponseOk;
-import searchengine.model.IndexEntity;
-import searchengine.model.LemmaEntity;
-import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
-import searchengine.repositories.IndexEntityRepository;
-import searchengine.repositories.LemmaEntityRepository;
+import searchengine.repositories.SearchJdbcRepository;
 import searchengine.repositories.SiteEntityRepository;
-import searchengine.utils.GetLemmasFromText;
+import searchengine.utils.Lemmatizer;
+import searchengine.utils.PageText;
+import searchengine.utils.PageTokens;
+import searchengine.utils.PositionMatcher;
+import searchengine.utils.Scorer;
+import searchengine.utils.SearchQuery;
+import searchengine.utils.SearchResultCache;
 
-import java.io.IOException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /** Сервис поиска */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SearchServiceImpl implements SearchService {
+    /** Количество слов текста до и после найденных слов в сниппете */
+    private static final int SNIPPET_CONTEXT_WORDS = 5;
+    /** Наибольшее расстояние между найденными словами, при котором они выводятся в одном сниппете */
+    private static final int MAX_SNIPPET_WINDOW = 30;
+    /** Количество страниц, данные которых загружаются одним запросом при потоковой выдаче результатов */
+    private static final int STREAM_CHUNK_SIZE = 5;
+
     private final SiteEntityRepository siteEntityRepository;
-    private final LemmaEntityRepository lemmaEntityRepository;
-    private final IndexEntityRepository indexEntityRepository;
+    private final SearchJdbcRepository searchJdbcRepository;
+    private final RankingEngine rankingEngine;
+    private final SearchSettings searchSettings;
+    private final Lemmatizer lemmatizer;
+    private final SearchResultCache searchResultCache;
 
     /** Осуществление поиска по данным запроса
      * @param query {string} Принимает запрос в виде строки
@@ -36,298 +49,201 @@ public class SearchServiceImpl implements SearchService {
      *                     не указан, поиск ведется по всем сайтам
      * @param offset {int} Принимает параметр для постраничного вывода (по умолчанию равен 0)
      * @param limit {int} Принимает параметр количества необходимых для вывода результатов (по умолчанию 20)
+     * @param rankingParameters {RankingParameters} Принимает параметры ранжирования из запроса
+     * @param listener {SearchResultListener} Принимает получателя результатов по мере их готовности либо null;
+     *                 данные страниц для него загружаются небольшими пачками
      * @return {SearchResponse} Возвращает новый SearchResponse в соответствии с  полученным запросом
      */
     @Override
-    public SearchResponse search(String query, String site, int offset, int limit) {
+    public SearchResponse search(String query, String site, int offset, int limit, RankingParameters rankingParameters,
+                                 SearchResultListener listener) {
         SearchResponseOk response = new SearchResponseOk();
         List<SearchData> data = new ArrayList<>();
         if (query.isBlank()) {
            return new SearchResponseError("Задан пустой поисковый запрос");
         }
-        try {
-            List<SiteEntity> siteEntityList = new ArrayList<>();
-            if (site.isBlank()) {
-                siteEntityList.addAll(siteEntityRepository.findAll());
-            } else {
-                siteEntityList.addAll(siteEntityRepository.selectSiteIdByUrl(site));
-            }
-            GetLemmasFromText getLemmasFromText = new GetLemmasFromText();
-            Map<List<String>, Integer> lemmaRequestMap = new HashMap<>(getLemmasFromText.getLemmaList(query));
-            List<List<LemmaEntity>> lemmaEntityList = getLemmaListFromDB(lemmaRequestMap, siteEntityList);
-            if (lemmaEntityList.isEmpty()) {
-               response.setCount(0);
-               response.setData(data);
-               return response;
-            }
-            Map<PageEntity, Float> pageEntityMap = getSortPageMap(lemmaEntityList);
-            response.setCount(pageEntityMap.size());
-            Map<PageEntity, Float> subSetPageMap = getSubSet(pageEntityMap, offset, limit);
-            response.setData(getDataForResponse(subSetPageMap, lemmaRequestMap));
-        } catch (IOException e) {
-            log.error(e.toString());
+        Ranking ranking = resolveRanking(rankingParameters);
+        Scorer scorer = Scorer.create(ranking.name(), ranking.k1(), ranking.b());
+        if (scorer == null) {
+           return new SearchResponseError("Неизвестная функция ранжирования: " + rankingParameters.getRanking());
         }
-        return response;
-    }
-
-    /** Возвращение фрагмента данной TreeMap в заданном диапазоне
-     * @param pageEntityMap {TreeSet<Map.Entry<PageEntity, Float>>} Принимает параметр TreeMap
-     * @param offset {int} Принимает параметр для постраничного вывода (по умолчанию равен 0)
-     * @param limit {int} Принимает параметр количества необходимых для вывода результатов (по умолчанию 20)
-     * @return {TreeSet<Map.Entry<PageEntity, Float>>} Возвращает TreeSet<Map.Entry<PageEntity, Float>>
-     *     в соответствии с  полученным диапазоном
-     */
-    private Map<PageEntity, Float> getSubSet(Map<PageEntity, Float> pageEntityMap,
-                                                        int offset, int limit) {
-        if (limit == 0) limit = 20;
-        if (pageEntityMap.size() < offset) {
-            offset = 0;
+        List<SiteEntity> siteEntityList = new ArrayList<>();
+        if (site.isBlank()) {
+            siteEntityList.addAll(siteEntityRepository.findAll());
+        } else {
+            siteEntityList.addAll(siteEntityRepository.selectSiteIdByUrl(site));
         }
-        TreeMap<PageEntity, Float> treeMap = new TreeMap<>();
-        int i = 0;
-        for (PageEntity key : pageEntityMap.keySet()) {
-            if ((i >= offset)&&(i < offset + limit)) {
-                treeMap.put(key, pageEntityMap.get(key));
-            }
-            i++;
-            if (i == offset + limit) break;
+        SearchQuery searchQuery = SearchQuery.parse(query, rankingParameters.getMinimumShouldMatch(), lemmatizer);
+        if (searchQuery.getTerms().isEmpty()) {
+           if (listener != null) listener.onCount(0, false, false);
+           response.setCount(0);
+           response.setData(data);
+           return response;
         }
-        return sortByValues(treeMap);
-    }
-
-    /** Получение данных о найденных страницах data для ответа
-     * @param pageEntityMap {TreeSet<Map.Entry<PageEntity, Float>>} pageEntityMap Принимает параметр отсортированную TreeMap
-     * с найденными страницами по результату поиска
-     * @param lemmaRequestMap {Map<String, Integer>} Принимает параметр Map лемм,полученных из запроса
-     * @return {List<SearchData>} Возвращает List<SearchData> в соответствии с  полученным запросом
-     */
-    private List<SearchData> getDataForResponse(Map<PageEntity, Float> pageEntityMap,
-                                                Map<List<String>, Integer> lemmaRequestMap) throws IOException {
-        List<SearchData> data = new ArrayList<>();
-        for (PageEntity page : pageEntityMap.keySet()) {
-            SearchData searchData = new SearchData();
-            searchData.setSite(page.getSite().getUrl());
-            searchData.setSiteName(page.getSite().getName());
-            searchData.setUri(page.getPath());
-            searchData.setTitle(getTitle(page.getContent()));
-            searchData.setSnippet(getSnippet(page.getContent(), lemmaRequestMap));
-            searchData.setRelevance(pageEntityMap.get(page));
-            data.add(searchData);
-        }
-        return data;
-    }
-
-    /** Получение списка LemmaEntity из базы по леммам и сайтам
-     * @param lemmaList {Map<String, Integer>} Принимает параметр Map список лемм
-     * @param siteEntityList {List<SiteEntity>} Принимает параметр List список сайтов
-     * @return {List<LemmaEntity>} Возвращает List<LemmaEntity> список записей лемм из базы
-     */
-    private List<List<LemmaEntity>> getLemmaListFromDB(Map<List<String>, Integer> lemmaList, List<SiteEntity> siteEntityList) {
-        List<Integer> sites = new ArrayList<>();
-        List<List<String>> lemmas = new ArrayList<>(lemmaList.keySet());
-        List<List<LemmaEntity>> response = new ArrayList<>();
-
+        if (limit == 0) limit = 20;
+        List<Integer> siteIds = new ArrayList<>();
         for (SiteEntity siteEntity : siteEntityList) {
-            sites.add(siteEntity.getId());
-        }
-
-        for (List<String> lemma : lemmas){
-            response.add(lemmaEntityRepository.selectLemmaIdBySiteIdAndLemmaOrderByFreq(sites, lemma));
+            siteIds.add(siteEntity.getId());
+        }
+        SearchResultCache.Key cacheKey = SearchResultCache.key(searchQuery.getTerms(), searchQuery.getOperatorsKey(),
+                site, offset, limit, ranking.key());
+        SearchResponseOk cached = searchResultCache.get(cacheKey, siteIds);
+        if (cached != null) {
+            if (listener != null) {
+                listener.onCount(cached.getCount(), cached.isEstimated(), cached.isPartial());
+                cached.getData().forEach(listener::onResult);
+            }
+            return cached;
+        }
+        long[] generations = searchResultCache.getGenerations(siteIds);
+        RankedPages rankedPages = rankingEngine.rank(siteIds, searchQuery, scorer, offset, limit);
+        if (listener != null) listener.onCount(rankedPages.total(), rankedPages.estimated(), rankedPages.partial());
+        response.setCount(rankedPages.total());
+        response.setEstimated(rankedPages.estimated());
+        response.setData(getDataForResponse(rankedPages, searchQuery.getTerms(), listener));
+        response.setPartial(rankedPages.partial());
+        if (!rankedPages.partial()) {
+            searchResultCache.put(cacheKey, siteIds, generations, response);
         }
-
         return response;
     }
 
-    /** Получение отсортированной Map с результатами поиска страниц
-     * @param lemmaList {List<LemmaEntity>} Принимает параметр список лем
-     * @return {TreeSet<Map.Entry<PageEntity, Float>>} Возвращает TreeSet<Map.Entry<PageEntity, Float>>
-          список страниц
-     */
-    private Map<PageEntity, Float> getSortPageMap(List<List<LemmaEntity>> lemmaList) {
-        Map<PageEntity, Float> pageEntityMap = new HashMap<>();
-        List<Integer> lemmaIds = getLemmasFromLemmaEntityList(lemmaList.get(0));
-        List<PageEntity> pageEntityList = new ArrayList<>();
-        List<IndexEntity> indexEntityList = indexEntityRepository.selectIndexIdByLemmaId(lemmaIds);
-        for (IndexEntity indexEntity : indexEntityList) {
-            if (!pageEntityList.contains(indexEntity.getPage())) {
-                pageEntityList.add(indexEntity.getPage());
-            }
-        }
-        for (PageEntity pageEntity : pageEntityList) {
-            float rank = 0;
-            for (List<LemmaEntity> lemmaEntityList : lemmaList) {
-                List<IndexEntity> indexList = indexEntityRepository.selectIndexIdByPageIdAndLemmaId(pageEntity.getId(),
-                        getLemmasFromLemmaEntityList(lemmaEntityList));
-                rank = rank + indexList.get(0).getRank();
-            }
-            pageEntityMap.put(pageEntity, rank);
-        }
-        float max = Collections.max(pageEntityMap.values());
-        pageEntityMap.replaceAll((p, v) -> pageEntityMap.get(p) / max);
-        return sortByValues(pageEntityMap);
-    }
-
-    public static Map<PageEntity, Float> sortByValues(Map<PageEntity, Float> map) {
-        List<Map.Entry<PageEntity, Float>> entryList = new LinkedList<>(map.entrySet());
-        entryList.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
-        Map<PageEntity, Float> sortedMap = new LinkedHashMap<>();
-        for (Map.Entry<PageEntity, Float> entry : entryList) {
-            sortedMap.put(entry.getKey(), entry.getValue());
-        }
-        return sortedMap;
-    }
-
-    /** Получение заголовка страницы
-     * @param lemmaEntityList {List<LemmaEntity>}  получает параметр список LemmaEntity
-     * @return {List<String>} возвращает список лемм
+    /** Функция ранжирования и ее параметры
+     * @param name {String} имя функции ранжирования
+     * @param k1 {float} насыщение частоты слова в BM25
+     * @param b {float} степень нормализации по длине страницы в BM25
      */
-    private List<Integer> getLemmasFromLemmaEntityList(List<LemmaEntity> lemmaEntityList) {
-        List<Integer> lemmas = new ArrayList<>();
-        for (LemmaEntity lemmaEntity : lemmaEntityList) {
-            lemmas.add(lemmaEntity.getId());
-        }
-        return lemmas;
-    }
+    private record Ranking(String name, float k1, float b) {
 
-    /** Получение заголовка страницы
-     * @param html {String}  получает параметр html страницы
-     * @return {String} возвращает title
-     */
-    private String getTitle(String html) {
-        String title = "";
-        String regex = "<title>[^>]+</title>";
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(html);
-        if (matcher.find()) {
-            title = html.substring(matcher.start() + 7, matcher.end() - 8);
+        /** Строка параметров ранжирования для ключа кэша результатов поиска */
+        String key() {
+            return name.toLowerCase(Locale.ROOT) + ":" + k1 + ":" + b;
         }
-        return title;
     }
 
-    /** Получение сниппета
-     * @param text {String}  получает параметр текст страницы
-     * @param getLemmaMap {Map<String, Integer>} получает параметр список лемм
-     * @return {String} возвращает сниппет
+    /** Получение функции ранжирования и ее параметров: не заданные в запросе берутся из настроек поиска
+     * @param rankingParameters {RankingParameters} Принимает параметры ранжирования из запроса
+     * @return {Ranking} Возвращает функцию ранжирования и ее параметры, общие для оценки страниц и ключа кэша
      */
-    private String getSnippet(String text, Map<List<String>, Integer> getLemmaMap) throws IOException {
-        GetLemmasFromText getLemmasFromText = new GetLemmasFromText();
-        String resultWithoutTags = getLemmasFromText.deleteTags(text);
-        List<String> textInWordList = new ArrayList<>(List.of(resultWithoutTags.split("\\s+")));
-        Map<List<String>, List<Integer>> lemmaIndexMap = new HashMap<>();
-        for (int i = 0; i < textInWordList.size(); i++) {
-            Pattern pattern = Pattern.compile("[А-яЁё]+");
-            Matcher matcher = pattern.matcher(textInWordList.get(i));
-            while (matcher.find()) {
-                List<String> wordBase = getLemmasFromText.getWordBase(matcher, textInWordList.get(i));
-                lemmaIndexMap.putAll(getWordIndexMap(wordBase, lemmaIndexMap, i));
-            }
-        }
-        String response = "";
-        List<Integer> responseIndexes = getFindIndexWordsForSnippet(lemmaIndexMap, getLemmaMap);
-
-        if (!responseIndexes.isEmpty()) {
-           response = getResponseSnippet(responseIndexes, textInWordList, 5);
-        }
-        return response;
+    private Ranking resolveRanking(RankingParameters rankingParameters) {
+        String ranking = rankingParameters.getRanking() == null || rankingParameters.getRanking().isBlank()
+                ? searchSettings.getRanking() : rankingParameters.getRanking();
+        float k1 = rankingParameters.getK1() == null ? searchSettings.getBm25K1() : rankingParameters.getK1();
+        float b = rankingParameters.getB() == null ? searchSettings.getBm25B() : rankingParameters.getB();
+        return new Ranking(ranking, k1, b);
     }
 
-    /** Формирование спиннета для ответа
-     * @param responseIndexes {List<Integer}  получает параметр список ииндексов
-     * @param textInWordList {List<String>} получает параметр список слов из текста
-     * @param delta {int} получает параметр диапазон текста для сниппета
-     * @return {String} возвращает сниппет
+    /** Получение данных о найденных страницах data для ответа. Заголовок и текст берутся сохраненными
+     * при индексации и загружаются только для страниц запрошенного диапазона вместе с позициями лемм запроса
+     * @param rankedPages {RankedPages} Принимает параметр найденные страницы запрошенного диапазона
+     * @param terms {List<List<String>>} Принимает параметр слова запроса в виде списков их лемм
+     * @param listener {SearchResultListener} Принимает получателя результатов либо null
+     * @return {List<SearchData>} Возвращает List<SearchData> в соответствии с  полученным запросом
      */
-    private String getResponseSnippet(List<Integer> responseIndexes, List<String> textInWordList, int delta) {
-        String response ="";
-        int startString = Collections.min(responseIndexes) - delta;
-        int endString = Collections.max(responseIndexes) + delta;
-        for (int i = startString; i <= endString; i++) {
-            if (i < 0) {
-                continue;
-            }
-            if (response.length() > 0) {
-                response = response.concat(" ");
-            }
-            if (responseIndexes.contains(i)) {
-                response = response.concat("<b>");
-            }
-            Pattern pattern = Pattern.compile("[-().,А-яЁё]+");
-            Matcher matcher = pattern.matcher(textInWordList.get(i));
-            if (matcher.find()) {
-                response = response.concat(textInWordList.get(i));
-            }
-            if (responseIndexes.contains(i)) {
-                response = response.concat("</" + "b>");
+    private List<SearchData> getDataForResponse(RankedPages rankedPages, List<List<String>> terms,
+                                                SearchResultListener listener) {
+        List<RankedPage> rankedPageList = rankedPages.pages();
+        int chunkSize = listener == null ? Math.max(rankedPageList.size(), 1) : STREAM_CHUNK_SIZE;
+        List<SearchData> data = new ArrayList<>();
+        for (int from = 0; from < rankedPageList.size(); from += chunkSize) {
+            List<RankedPage> chunk = rankedPageList.subList(from, Math.min(from + chunkSize, rankedPageList.size()));
+            for (SearchData searchData : getDataForPages(chunk, terms)) {
+                data.add(searchData);
+                if (listener != null) listener.onResult(searchData);
             }
         }
-        return response;
+        return data;
     }
 
-    /** Получение Map с порядковыми номерами слов в тексте для сниппета
-     * @param wordBase {List<String}  получает параметр базовые формы слов
-     * @param lemmaIndexList {Map<String, List<Integer>>} получает параметр список индексов лемм
-     * @param index {int} получает параметр индекс слова в тексте
-     * @return {Map<String, List<Integer>} возвращает Map слов с их порядковыми номерами в тексте
+    /** Получение данных пачки найденных страниц двумя запросами: данные страниц и позиции лемм запроса
+     * @param rankedPageList {List<RankedPage>} Принимает параметр страницы пачки по убыванию релевантности
+     * @param terms {List<List<String>>} Принимает параметр слова запроса в виде списков их лемм
+     * @return {List<SearchData>} Возвращает данные страниц в том же порядке
      */
-    private Map<List<String>, List<Integer>> getWordIndexMap(List<String> wordBase, Map<List<String>, List<Integer>> lemmaIndexList, int index) {
-        List<Integer> indexList = new ArrayList<>();
-        if (lemmaIndexList.containsKey(wordBase)) {
-            indexList.addAll(lemmaIndexList.get(wordBase));
+    private List<SearchData> getDataForPages(List<RankedPage> rankedPageList, List<List<String>> terms) {
+        List<Integer> pageIds = new ArrayList<>();
+        for (RankedPage rankedPage : rankedPageList) {
+            pageIds.add(rankedPage.pageId());
+        }
+        Set<String> lemmas = new HashSet<>();
+        terms.forEach(lemmas::addAll);
+        Map<Integer, SearchJdbcRepository.FoundPage> foundPages = searchJdbcRepository.selectFoundPages(pageIds);
+        Map<Integer, Map<String, byte[]>> positions = searchJdbcRepository.selectPositions(pageIds, lemmas);
+        List<SearchData> data = new ArrayList<>();
+        for (RankedPage rankedPage : rankedPageList) {
+            SearchJdbcRepository.FoundPage page = foundPages.get(rankedPage.pageId());
+            if (page == null) continue;
+            PageText pageText = page.text() != null
+                    ? new PageText(page.title(), page.text()) : PageText.of(page.content());
+            SearchData searchData = new SearchData();
+            searchData.setSite(page.siteUrl());
+            searchData.setSiteName(page.siteName());
+            searchData.setUri(page.path());
+            searchData.setTitle(pageText.title());
+            searchData.setSnippet(getSnippet(pageText.text(), page.tokens(),
+                    positions.getOrDefault(page.pageId(), Map.of()), terms));
+            searchData.setRelevance(rankedPage.relevance());
+            data.add(searchData);
         }
-            indexList.add(index);
-        lemmaIndexList.put(wordBase, indexList);
-        return lemmaIndexList;
+        return data;
     }
 
-    /** Поиск порядковых номеров наиболее близкорасположенных слов для сниппета
-     * @param textLemmaMap {Map<String, List<Integer>}  получает параметр леммы из текста
-     * @param requestLemmaMap {Map<String, List<Integer>>} получает параметр список лемм из запроса
-     * @return {List<Integer>} возвращает список индексов слов для сниппета
+    /** Получение сниппета по позициям лемм запроса, сохраненным при индексации. Текст страниц,
+     * проиндексированных без позиций, разбирается на слова при запросе
+     * @param text {String} получает параметр текст страницы без разметки
+     * @param tokens {byte[]} получает параметр сохраненные границы слов текста либо null
+     * @param storedPositions {Map<String, byte[]>} получает параметр сохраненные позиции лемм запроса на странице
+     * @param terms {Collection<List<String>>} получает параметр слова запроса в виде списков их лемм
+     * @return {String} возвращает сниппет
      */
-    private static List<Integer> getFindIndexWordsForSnippet(Map<List<String>, List<Integer>> textLemmaMap, Map<List<String>, Integer> requestLemmaMap) {
-        List<List<Integer>> indexList = new ArrayList<>();
-        for (List<String> lemma : requestLemmaMap.keySet()) {
-            if (textLemmaMap.containsKey(lemma)) {
-                indexList.add(textLemmaMap.get(lemma));
-            }
-        }
-        List<Integer> resultIndexList = new ArrayList<>();
-        for (int index : indexList.get(0)) {
-            List<Integer> findIndexList = new ArrayList<>();
-            findIndexList.add(index);
-            if (indexList.size() == 1) {
-                return findIndexList;
-            }
-            findIndexList.addAll(findMinDistanceIndexForSnippet(indexList, index));
-            if (resultIndexList.isEmpty()) {
-                resultIndexList.addAll(findIndexList);
-            }
-            int distanceBetweenWordsResult = Collections.max(resultIndexList) - Collections.min(resultIndexList);
-            int distanceBetweenWordsFind = Collections.max(findIndexList) - Collections.min(findIndexList);
-            if (distanceBetweenWordsResult > distanceBetweenWordsFind) {
-                resultIndexList.clear();
-                resultIndexList.addAll(findIndexList);
-            }
-        }
-        return resultIndexList;
+    private String getSnippet(String text, byte[] tokens, Map<String, byte[]> storedPositions,
+                              Collection<List<String>> terms) {
+        PageTokens pageTokens;
+        Map<String, int[]> lemmaPositions = new HashMap<>();
+        if (tokens != null && !storedPositions.isEmpty()) {
+            pageTokens = PageTokens.ofOffsets(tokens);
+            storedPositions.forEach((lemma, positions) -> lemmaPositions.put(lemma, PageTokens.decode(positions)));
+        } else {
+            pageTokens = PageTokens.of(text, lemmatizer);
+            lemmaPositions.putAll(pageTokens.getLemmaPositions());
+        }
+        List<int[]> termPositions = new ArrayList<>();
+        for (List<String> term : terms) {
+            int[] positions = PositionMatcher.getTermPositions(term, lemmaPositions);
+            if (positions.length > 0 && positions[positions.length - 1] < pageTokens.size()) termPositions.add(positions);
+        }
+        if (termPositions.isEmpty()) return "";
+        int[] window = PositionMatcher.findMinWindow(termPositions);
+        return getResponseSnippet(text, pageTokens, termPositions, window[0], window[1]);
     }
 
-    /** Нахлождение минимального расстояния между заданными словами в тексте для сниппета
-     * @param indexList {List<List<Integer>>}  получает параметр список наор индесков слов
-     * @param index {Map<String, List<Integer>>} получает параметр индеск слова
-     * @return {List<Integer>} возвращает список индексов слов для сниппета
+    /** Формирование сниппета: фрагмент сохраненного текста вокруг окна с выделением слов запроса
+     * @param text {String} получает параметр текст страницы без разметки
+     * @param pageTokens {PageTokens} получает параметр границы слов текста
+     * @param termPositions {List<int[]>} получает параметр позиции слов запроса
+     * @param windowStart {int} получает параметр первая позиция окна
+     * @param windowEnd {int} получает параметр последняя позиция окна
+     * @return {String} возвращает сниппет
      */
-    private static List<Integer> findMinDistanceIndexForSnippet(List<List<Integer>> indexList, int index) {
-        List<Integer> findIndexList = new ArrayList<>();
-        for (int i = 1; i < indexList.size(); i++) {
-            int min = 1000;
-            for (int j : indexList.get(i)) {
-                if (Math.abs(min) > Math.abs(j - index)) {
-                    min = j - index;
-                }
-            }
-            findIndexList.add(min + index);
-        }
-        return findIndexList;
+    private static String getResponseSnippet(String text, PageTokens pageTokens, List<int[]> termPositions,
+                                             int windowStart, int windowEnd) {
+        if (windowEnd - windowStart > MAX_SNIPPET_WINDOW) windowEnd = windowStart;
+        int from = Math.max(0, windowStart - SNIPPET_CONTEXT_WORDS);
+        int to = Math.min(pageTokens.size() - 1, windowEnd + SNIPPET_CONTEXT_WORDS);
+        boolean[] highlighted = new boolean[to - from + 1];
+        for (int[] positions : termPositions) {
+            for (int position : positions) {
+                if (position >= from && position <= to) highlighted[position - from] = true;
+            }
+        }
+        StringBuilder snippet = new StringBuilder();
+        int offset = pageTokens.getStart(from);
+        for (int position = from; position <= to; position++) {
+            if (!highlighted[position - from]) continue;
+            snippet.append(text, offset, pageTokens.getStart(position)).append("<b>")
+                    .append(text, pageTokens.getStart(position), pageTokens.getEnd(position)).append("</b>");
+            offset = pageTokens.getEnd(position);
+        }
+        return snippet.append(text, offset, pageTokens.getEnd(to)).toString();
     }
 }
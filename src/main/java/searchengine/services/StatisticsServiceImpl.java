@@ -2,6 +2,7 @@ package searchengine.services;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import searchengine.dto.statistics.CacheStatisticsItem;
 import searchengine.dto.statistics.DetailedStatisticsItem;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
@@ -10,6 +11,9 @@ import searchengine.model.SiteEntity;
 import searchengine.repositories.LemmaEntityRepository;
 import searchengine.repositories.PageEntityRepository;
 import searchengine.repositories.SiteEntityRepository;
+import searchengine.utils.CrawlMetrics;
+import searchengine.utils.Lemmatizer;
+import searchengine.utils.SearchResultCache;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +26,9 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final SiteEntityRepository siteEntityRepository;
     private final PageEntityRepository pageEntityRepository;
     private final LemmaEntityRepository lemmaEntityRepository;
+    private final Lemmatizer lemmatizer;
+    private final SearchResultCache searchResultCache;
+    private final CrawlMetrics crawlMetrics;
 
     /** Возвращение сформированной статистики */
     @Override
@@ -41,6 +48,7 @@ public class StatisticsServiceImpl implements StatisticsService {
             int lemmas = lemmaEntityRepository.selectLemmaIdBySiteId(String.valueOf(siteEntity.getId())).size();//pages * random.nextInt(1_000);
             item.setPages(pages);
             item.setLemmas(lemmas);
+            item.setPagesPerSecond(crawlMetrics.getPagesPerSecond(siteEntity.getUrl()));
             item.setStatus(siteEntity.getStatus());
             item.setError(siteEntity.getLast_error());
             item.setStatusTime(siteEntity.getStatus_time());
@@ -53,6 +61,10 @@ public class StatisticsServiceImpl implements StatisticsService {
         StatisticsData data = new StatisticsData();
         data.setTotal(total);
         data.setDetailed(detailed);
+        List<CacheStatisticsItem> caches = new ArrayList<>();
+        caches.add(lemmatizer.getCacheStatistics());
+        caches.add(searchResultCache.getCacheStatistics());
+        data.setCaches(caches);
         response.setStatistics(data);
         response.setResult(true);
         return response;
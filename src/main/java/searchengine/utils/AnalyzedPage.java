@@ -0,0 +1,41 @@
+package searchengine.utils;
+
+import searchengine.config.IndexFieldSettings;
+
+/** Загруженная страница после лемматизации: поля страницы, позиции и ранги лемм вычисляются
+ * в пуле лемматизации до записи страницы в базу
+ * @param page {FetchedPage} загруженная страница
+ * @param contentHash {String} хэш содержимого для сравнения с предыдущей индексацией либо null
+ * @param pageText {PageText} заголовок и текст страницы либо null, если страницу не нужно индексировать
+ * @param pageLemmas {PageLemmas} позиции и ранги лемм либо null, если страницу не нужно индексировать
+ */
+public record AnalyzedPage(FetchedPage page, String contentHash, PageText pageText, PageLemmas pageLemmas) {
+
+    /** Лемматизация страницы. Неизменившиеся с предыдущей индексации страницы и страницы с ошибкой
+     * не разбираются
+     * @param page {FetchedPage} принимает параметр загруженная страница
+     * @param knownPage {KnownPages.KnownPage} принимает параметр страница из предыдущей индексации либо null
+     * @param lemmatizer {Lemmatizer} принимает параметр лемматизатор
+     * @param fields {IndexFieldSettings} принимает параметр веса полей страницы
+     * @return {AnalyzedPage} возвращает результат разбора страницы
+     */
+    public static AnalyzedPage of(FetchedPage page, KnownPages.KnownPage knownPage, Lemmatizer lemmatizer,
+                                  IndexFieldSettings fields) {
+        if (knownPage != null && (page.isNotModified() || page.code() == 0)) return new AnalyzedPage(page, null, null, null);
+        String contentHash = null;
+        if (knownPage != null) {
+            contentHash = page.contentHash();
+            if (page.code() == knownPage.code() && contentHash.equals(knownPage.contentHash())) {
+                return new AnalyzedPage(page, contentHash, null, null);
+            }
+        }
+        if (page.code() >= 400) return new AnalyzedPage(page, contentHash, null, null);
+        PageText pageText = page.pageText() != null ? page.pageText() : PageText.of(page.content());
+        return new AnalyzedPage(page, contentHash, pageText, PageLemmas.of(pageText, lemmatizer, fields));
+    }
+
+    /** Разобрана ли страница для записи лемм и индексов */
+    public boolean isAnalyzed() {
+        return pageLemmas != null;
+    }
+}
@@ -0,0 +1,42 @@
+package searchengine.utils;
+
+/** Ранжирование Okapi BM25: частота слова насыщается параметром k1, длина страницы нормализуется
+ * относительно средней по сайту с весом b, редкие на сайте слова весят больше */
+public class Bm25Scorer implements Scorer {
+
+    private final float k1;
+    private final float b;
+
+    public Bm25Scorer(float k1, float b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    @Override
+    public float score(float[] termFrequencies, int length, RankingStatistics statistics) {
+        double averageLength = statistics.averageLength() > 0 ? statistics.averageLength() : 1;
+        double lengthRatio = length > 0 ? length / averageLength : 1;
+        double norm = k1 * (1 - b + b * lengthRatio);
+        double score = 0;
+        for (int i = 0; i < termFrequencies.length; i++) {
+            double tf = termFrequencies[i];
+            score += idf(statistics.pageCount(), statistics.documentFrequencies()[i]) * tf * (k1 + 1) / (tf + norm);
+        }
+        return (float) score;
+    }
+
+    /** Вклад слова наибольший на странице нулевой длины: нормализация не меньше k1 * (1 - b) */
+    @Override
+    public float upperBound(int term, float maxFrequency, RankingStatistics statistics) {
+        double norm = k1 * (1 - b);
+        double idf = idf(statistics.pageCount(), statistics.documentFrequencies()[term]);
+        return (float) (idf * maxFrequency * (k1 + 1) / (maxFrequency + norm));
+    }
+
+    /** Обратная частота слова; сглаживание не дает отрицательных весов у слов, встречающихся
+     * на большинстве страниц */
+    static double idf(int pageCount, int documentFrequency) {
+        double df = Math.min(Math.max(documentFrequency, 1), Math.max(pageCount, 1));
+        return Math.log(1 + (Math.max(pageCount, 1) - df + 0.5) / (df + 0.5));
+    }
+}
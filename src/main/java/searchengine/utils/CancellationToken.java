@@ -0,0 +1,16 @@
+package searchengine.utils;
+
+/** Токен кооперативной отмены: задачи индексации проверяют его между порциями работы
+ * и сами завершают обработку, записывая состояние сайта */
+public class CancellationToken {
+
+    private volatile boolean cancelled = false;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
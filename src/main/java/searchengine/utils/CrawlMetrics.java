@@ -0,0 +1,60 @@
+package searchengine.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Скорость обхода сайтов: количество загруженных страниц в секунду по каждому сайту */
+@Component
+public class CrawlMetrics {
+
+    /** Счетчик загруженных страниц одного обхода сайта */
+    public static class SiteThroughput {
+        private final AtomicLong pages = new AtomicLong();
+        private final long startNanos = System.nanoTime();
+        private volatile long endNanos = 0;
+
+        public void recordPage() {
+            pages.incrementAndGet();
+        }
+
+        public void finish() {
+            endNanos = System.nanoTime();
+        }
+
+        public long getPages() {
+            return pages.get();
+        }
+
+        /** Средняя скорость обхода с начала обхода до текущего момента либо до его окончания */
+        public double getPagesPerSecond() {
+            long end = endNanos == 0 ? System.nanoTime() : endNanos;
+            double seconds = (double) (end - startNanos) / TimeUnit.SECONDS.toNanos(1);
+            return seconds > 0 ? pages.get() / seconds : 0;
+        }
+    }
+
+    private final Map<String, SiteThroughput> throughputBySite = new ConcurrentHashMap<>();
+
+    /** Начало отсчета для нового обхода сайта
+     * @param url {String} принимает параметр url сайта
+     * @return {SiteThroughput} возвращает счетчик обхода
+     */
+    public SiteThroughput start(String url) {
+        SiteThroughput throughput = new SiteThroughput();
+        throughputBySite.put(url, throughput);
+        return throughput;
+    }
+
+    /** Скорость обхода сайта
+     * @param url {String} принимает параметр url сайта
+     * @return {double} возвращает количество страниц в секунду, 0 если сайт не обходился
+     */
+    public double getPagesPerSecond(String url) {
+        SiteThroughput throughput = throughputBySite.get(url);
+        return throughput == null ? 0 : throughput.getPagesPerSecond();
+    }
+}
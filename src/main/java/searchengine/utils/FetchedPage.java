@@ -0,0 +1,39 @@
+package searchengine.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/** Класс загруженной страницы: результат единственного обращения к странице при обходе сайта
+ * @param path путь к странице
+ * @param code код ответа
+ * @param content html страницы
+ * @param links ссылки, найденные на странице
+ * @param etag заголовок ETag ответа
+ * @param lastModified заголовок Last-Modified ответа
+ * @param pageText поля страницы, извлеченные из того же разбора html, что и ссылки, либо null
+ */
+public record FetchedPage(String path, int code, String content, List<String> links,
+                          String etag, String lastModified, PageText pageText) {
+
+    /** Код ответа на условный запрос, если страница не изменилась */
+    public static final int NOT_MODIFIED = 304;
+
+    public boolean isNotModified() {
+        return code == NOT_MODIFIED;
+    }
+
+    /** Хэш содержимого страницы для обнаружения изменений при повторной индексации
+     * @return {String} возвращает SHA-256 содержимого в шестнадцатеричном виде
+     */
+    public String contentHash() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
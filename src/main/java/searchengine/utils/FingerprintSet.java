@@ -0,0 +1,107 @@
+package searchengine.utils;
+
+/** Потокобезопасное множество 64-битных отпечатков без упаковки в объекты: открытая адресация
+ * в массивах long, разделенных на сегменты со своей блокировкой. На один элемент приходится 8-16 байт */
+public class FingerprintSet {
+
+    private static final int SEGMENT_COUNT = 64;
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+    /** Значение пустой ячейки; отпечаток, совпавший с ним, заменяется на {@link #ZERO_REPLACEMENT} */
+    private static final long EMPTY = 0L;
+    private static final long ZERO_REPLACEMENT = 0x9E3779B97F4A7C15L;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    public FingerprintSet() {
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /** Добавление отпечатка
+     * @param fingerprint {long} принимает параметр отпечаток
+     * @return {boolean} true, если отпечатка еще не было в множестве
+     */
+    public boolean add(long fingerprint) {
+        if (fingerprint == EMPTY) fingerprint = ZERO_REPLACEMENT;
+        int segment = (int) (fingerprint >>> 58) & (SEGMENT_COUNT - 1);
+        return segments[segment].add(fingerprint);
+    }
+
+    public boolean contains(long fingerprint) {
+        if (fingerprint == EMPTY) fingerprint = ZERO_REPLACEMENT;
+        int segment = (int) (fingerprint >>> 58) & (SEGMENT_COUNT - 1);
+        return segments[segment].contains(fingerprint);
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /** 64-битный отпечаток строки (FNV-1a с финальным перемешиванием MurmurHash3)
+     * @param value {CharSequence} принимает параметр строка
+     * @return {long} возвращает отпечаток
+     */
+    public static long fingerprint(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Segment {
+        private long[] table = new long[INITIAL_SEGMENT_CAPACITY];
+        private int size = 0;
+
+        synchronized boolean add(long fingerprint) {
+            if (insert(table, fingerprint)) {
+                size++;
+                if (size * 4 > table.length * 3) resize();
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean contains(long fingerprint) {
+            int mask = table.length - 1;
+            for (int i = (int) fingerprint & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+                if (table[i] == fingerprint) return true;
+            }
+            return false;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private void resize() {
+            long[] newTable = new long[table.length * 2];
+            for (long value : table) {
+                if (value != EMPTY) insert(newTable, value);
+            }
+            table = newTable;
+        }
+
+        private static boolean insert(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            int i = (int) fingerprint & mask;
+            while (table[i] != EMPTY) {
+                if (table[i] == fingerprint) return false;
+                i = (i + 1) & mask;
+            }
+            table[i] = fingerprint;
+            return true;
+        }
+    }
+}
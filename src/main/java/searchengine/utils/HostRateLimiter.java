@@ -0,0 +1,54 @@
+package searchengine.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/** Ограничитель частоты запросов к одному хосту: маркерная корзина с заданным числом запросов в секунду
+ * и ограничением количества одновременных соединений. Не блокирует поток: при отсутствии маркера
+ * возвращает время, через которое стоит повторить попытку */
+public class HostRateLimiter {
+
+    /** Время повторной попытки при занятых соединениях */
+    private static final long CONNECTION_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private final int maxConnections;
+    private double tokens;
+    private int activeConnections = 0;
+    private long lastRefillNanos;
+
+    public HostRateLimiter(double requestsPerSecond, int maxConnections) {
+        this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, requestsPerSecond);
+        this.maxConnections = maxConnections;
+        this.tokens = 1;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /** Попытка получить разрешение на запрос
+     * @return {long} 0, если разрешение получено и соединение занято, иначе время ожидания в наносекундах
+     */
+    public synchronized long tryAcquire() {
+        refill();
+        if (activeConnections >= maxConnections) {
+            return CONNECTION_RETRY_NANOS;
+        }
+        if (tokens < 1) {
+            return Math.max(1, (long) ((1 - tokens) / tokensPerNano));
+        }
+        tokens -= 1;
+        activeConnections++;
+        return 0;
+    }
+
+    /** Освобождение соединения после завершения запроса */
+    public synchronized void release() {
+        activeConnections--;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
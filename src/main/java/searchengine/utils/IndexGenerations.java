@@ -0,0 +1,31 @@
+package searchengine.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Поколения индексов сайтов: счетчик сайта увеличивается при каждом изменении его страниц, лемм
+ * или индексов. Закэшированные результаты поиска действительны, пока не изменились поколения их сайтов */
+@Component
+public class IndexGenerations {
+
+    private final Map<Integer, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    /** Отметка об изменении данных сайта
+     * @param siteId {int} принимает параметр id сайта
+     */
+    public void bump(int siteId) {
+        generations.computeIfAbsent(siteId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /** Текущее поколение индекса сайта
+     * @param siteId {int} принимает параметр id сайта
+     * @return {long} возвращает поколение, 0 если данные сайта не менялись с запуска приложения
+     */
+    public long get(int siteId) {
+        AtomicLong generation = generations.get(siteId);
+        return generation == null ? 0 : generation.get();
+    }
+}
@@ -0,0 +1,168 @@
+package searchengine.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Неизменяемый сегмент инвертированного индекса сайта, открытый через FileChannel.map: списки
+ * вхождений, словарь и таблица страниц читаются непосредственно из отображенного файла, без копии в куче.
+ * <pre>
+ * заголовок   int magic, int версия, int id сайта, int количество лемм, int количество страниц,
+ *             long смещение таблицы страниц, long смещение словаря, long смещение байтов лемм,
+ *             long суммарная длина действительных страниц
+ * списки      списки вхождений в формате {@link PostingList#writeTo}
+ * страницы    int[] id страниц по возрастанию, int[] длины страниц в леммах ({@link #DELETED_PAGE} - удалена)
+ * словарь     по возрастанию лемм: int смещение байтов леммы, int длина байтов леммы, long смещение списка
+ * леммы       байты лемм в UTF-8
+ * </pre> */
+public final class IndexSegment {
+
+    static final int MAGIC = 0x53454731;
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 4 * 5 + 8 * 4;
+    /** Размер записи словаря */
+    private static final int DICTIONARY_ENTRY_SIZE = 16;
+    /** Длина страницы, отмеченной как удаленная */
+    public static final int DELETED_PAGE = -1;
+    /** Длина страницы, отсутствующей в сегменте */
+    public static final int ABSENT_PAGE = -2;
+
+    private final Path file;
+    private final long generation;
+    private final MappedByteBuffer buffer;
+    private final int siteId;
+    private final int lemmaCount;
+    private final int pageCount;
+    private final int pageTableOffset;
+    private final int dictionaryOffset;
+    private final int lemmaBytesOffset;
+    private final long totalPageLength;
+
+    private IndexSegment(Path file, long generation, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.generation = generation;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Неверный формат сегмента " + file);
+        }
+        this.siteId = buffer.getInt(8);
+        this.lemmaCount = buffer.getInt(12);
+        this.pageCount = buffer.getInt(16);
+        this.pageTableOffset = (int) buffer.getLong(20);
+        this.dictionaryOffset = (int) buffer.getLong(28);
+        this.lemmaBytesOffset = (int) buffer.getLong(36);
+        this.totalPageLength = buffer.getLong(44);
+    }
+
+    /** Открытие сегмента; время открытия не зависит от размера сегмента
+     * @param file {Path} принимает параметр файл сегмента
+     * @param generation {long} принимает параметр поколение сегмента, у более новых сегментов больше
+     * @return {IndexSegment} возвращает открытый сегмент
+     */
+    public static IndexSegment open(Path file, long generation) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new IndexSegment(file, generation, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int getSiteId() {
+        return siteId;
+    }
+
+    public int getLemmaCount() {
+        return lemmaCount;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /** Суммарная длина страниц сегмента в леммах, без удаленных страниц */
+    public long getTotalPageLength() {
+        return totalPageLength;
+    }
+
+    /** Размер файла сегмента в байтах */
+    public long getSize() {
+        return buffer.capacity();
+    }
+
+    /** Поиск списка вхождений леммы двоичным поиском по словарю
+     * @param lemma {String} принимает параметр лемма
+     * @return {PostingList} возвращает список вхождений либо null, если леммы нет в сегменте
+     */
+    public PostingList getPostings(String lemma) {
+        int low = 0;
+        int high = lemmaCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = getLemma(middle).compareTo(lemma);
+            if (compare < 0) low = middle + 1;
+            else if (compare > 0) high = middle - 1;
+            else return getPostings(middle);
+        }
+        return null;
+    }
+
+    /** Лемма словаря по ее номеру
+     * @param index {int} принимает параметр номер леммы в словаре
+     * @return {String} возвращает лемму
+     */
+    public String getLemma(int index) {
+        int entry = dictionaryOffset + index * DICTIONARY_ENTRY_SIZE;
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        buffer.get(lemmaBytesOffset + buffer.getInt(entry), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Список вхождений леммы словаря по ее номеру
+     * @param index {int} принимает параметр номер леммы в словаре
+     * @return {PostingList} возвращает список вхождений
+     */
+    public PostingList getPostings(int index) {
+        return PostingList.read(buffer, (int) buffer.getLong(dictionaryOffset + index * DICTIONARY_ENTRY_SIZE + 8));
+    }
+
+    public int getPageId(int index) {
+        return buffer.getInt(pageTableOffset + 4 * index);
+    }
+
+    public int getPageLengthAt(int index) {
+        return buffer.getInt(pageTableOffset + 4 * (pageCount + index));
+    }
+
+    /** Длина страницы в леммах
+     * @param pageId {int} принимает параметр id страницы
+     * @return {int} возвращает длину страницы, {@link #DELETED_PAGE} для удаленной страницы
+     * и {@link #ABSENT_PAGE}, если страницы нет в сегменте
+     */
+    public int getPageLength(int pageId) {
+        int low = 0;
+        int high = pageCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int current = getPageId(middle);
+            if (current < pageId) low = middle + 1;
+            else if (current > pageId) high = middle - 1;
+            else return getPageLengthAt(middle);
+        }
+        return ABSENT_PAGE;
+    }
+
+    /** Есть ли страница в сегменте, в том числе в виде отметки об удалении */
+    public boolean containsPage(int pageId) {
+        return getPageLength(pageId) != ABSENT_PAGE;
+    }
+}
@@ -0,0 +1,103 @@
+package searchengine.utils;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.SchedulerSettings;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/** Планировщик индексации: общий ограниченный пул потоков для всех сайтов. Задачи выбираются
+ * по приоритету, при равном приоритете - в порядке постановки. Сайт держит в очереди не больше
+ * одной задачи и после каждой порции работы ставит следующую в конец, поэтому сайты обслуживаются
+ * по очереди, а количество потоков зависит от количества ядер, а не сайтов */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndexingScheduler {
+
+    /** Приоритет задачи: HIGH выполняется раньше всех задач обхода сайтов */
+    public enum Priority {
+        HIGH, NORMAL
+    }
+
+    private final SchedulerSettings settings;
+    private final AtomicLong sequence = new AtomicLong();
+    private ThreadPoolExecutor workers;
+
+    @PostConstruct
+    public void start() {
+        int threads = settings.getWorkerThreads() > 0
+                ? settings.getWorkerThreads() : Runtime.getRuntime().availableProcessors();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /** Постановка задачи в очередь пула
+     * @param priority {Priority} принимает параметр приоритет задачи
+     * @param task {Runnable} принимает параметр задача
+     */
+    public void submit(Priority priority, Runnable task) {
+        workers.execute(new Task(priority, sequence.getAndIncrement(), task));
+    }
+
+    /** Постановка задачи в очередь пула через заданное время без занятия потока пула на время ожидания
+     * @param priority {Priority} принимает параметр приоритет задачи
+     * @param task {Runnable} принимает параметр задача
+     * @param delay {Duration} принимает параметр время ожидания
+     */
+    public void schedule(Priority priority, Runnable task, Duration delay) {
+        CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            try {
+                submit(priority, task);
+            } catch (RejectedExecutionException e) {
+                log.error(e.toString());
+            }
+        });
+    }
+
+    /** Выполнение задачи с результатом в пуле
+     * @param priority {Priority} принимает параметр приоритет задачи
+     * @param task {Supplier<T>} принимает параметр задача
+     * @return {CompletableFuture<T>} возвращает результат задачи
+     */
+    public <T> CompletableFuture<T> call(Priority priority, Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submit(priority, () -> {
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /** Задача пула с приоритетом и порядковым номером постановки в очередь */
+    private record Task(Priority priority, long sequence, Runnable task) implements Runnable, Comparable<Task> {
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int compare = priority.compareTo(other.priority);
+            return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+        }
+    }
+}
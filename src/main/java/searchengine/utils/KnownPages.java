@@ -0,0 +1,60 @@
+package searchengine.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/** Страницы сайта, сохраненные предыдущей индексацией: используются при повторной индексации
+ * для условных запросов, пропуска неизменившихся страниц и удаления исчезнувших */
+public class KnownPages {
+
+    /** Сохраненные сведения о странице без ее содержимого */
+    public record KnownPage(int id, String path, int code, String etag, String lastModified, String contentHash) {
+    }
+
+    private final Map<String, KnownPage> pages = new ConcurrentHashMap<>();
+    private final Set<String> seenPaths = ConcurrentHashMap.newKeySet();
+    private final IntFunction<String> contentLoader;
+
+    /**
+     * @param knownPages {List<KnownPage>} принимает параметр сохраненные страницы сайта
+     * @param contentLoader {IntFunction<String>} принимает параметр загрузка сохраненного html по id страницы
+     */
+    public KnownPages(List<KnownPage> knownPages, IntFunction<String> contentLoader) {
+        for (KnownPage knownPage : knownPages) {
+            pages.put(knownPage.path(), knownPage);
+        }
+        this.contentLoader = contentLoader;
+    }
+
+    /** Пустой набор для полной индексации */
+    public static KnownPages empty() {
+        return new KnownPages(List.of(), id -> "");
+    }
+
+    public KnownPage get(String path) {
+        return pages.get(path);
+    }
+
+    /** Отметка страницы как найденной при текущем обходе */
+    public void markSeen(String path) {
+        seenPaths.add(path);
+    }
+
+    /** Сохраненный html неизменившейся страницы, из него берутся ссылки вместо повторной загрузки */
+    public String loadContent(KnownPage knownPage) {
+        return contentLoader.apply(knownPage.id());
+    }
+
+    /** Сохраненные страницы, не найденные при текущем обходе */
+    public List<KnownPage> getUnseen() {
+        List<KnownPage> unseen = new ArrayList<>();
+        for (KnownPage knownPage : pages.values()) {
+            if (!seenPaths.contains(knownPage.path())) unseen.add(knownPage);
+        }
+        return unseen;
+    }
+}
@@ -0,0 +1,94 @@
+package searchengine.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Класс накопления лемм и индексов страниц одного сайта для пакетной записи в базу */
+public class LemmaIndexBatch {
+
+    /** Строка таблицы index до получения id леммы
+     * @param positions {byte[]} порядковые номера слов страницы с леммой в формате {@link PageTokens#encode(int[])}
+     */
+    public record IndexRow(int pageId, String lemma, float rank, byte[] positions) {
+    }
+
+    private final int siteId;
+    private final int size;
+    private final long flushIntervalMillis;
+    private final Map<String, Integer> lemmaFrequencies = new HashMap<>();
+    private final List<IndexRow> indexRows = new ArrayList<>();
+    private int pageCount = 0;
+    private int flushCount = 0;
+    private long createdMillis = System.currentTimeMillis();
+
+    public LemmaIndexBatch(int siteId, int size, Duration flushInterval) {
+        this.siteId = siteId;
+        this.size = size;
+        this.flushIntervalMillis = flushInterval.toMillis();
+    }
+
+    /** Добавление лемм страницы в пакет
+     * @param pageId {int} принимает параметр id страницы
+     * @param pageLemmas {PageLemmas} принимает параметр леммы страницы с их рангами и позициями на странице
+     */
+    public void add(int pageId, PageLemmas pageLemmas) {
+        add(pageId, pageLemmas, Set.of());
+    }
+
+    /** Добавление лемм измененной страницы в пакет: частота лемм, которые уже были на странице, не увеличивается
+     * @param pageId {int} принимает параметр id страницы
+     * @param pageLemmas {PageLemmas} принимает параметр леммы страницы с их рангами и позициями на странице
+     * @param countedLemmas {Set<String>} принимает параметр леммы, уже учтенные в частоте для этой страницы
+     */
+    public void add(int pageId, PageLemmas pageLemmas, Set<String> countedLemmas) {
+        for (Map.Entry<String, Float> entry : pageLemmas.ranks().entrySet()) {
+            lemmaFrequencies.merge(entry.getKey(), countedLemmas.contains(entry.getKey()) ? 0 : 1, Integer::sum);
+            indexRows.add(new IndexRow(pageId, entry.getKey(), entry.getValue(),
+                    PageTokens.encode(pageLemmas.getPositions(entry.getKey()))));
+        }
+        pageCount++;
+    }
+
+    /** Проверка необходимости записи пакета в базу
+     * @return {boolean} пакет заполнен либо истекло время его хранения
+     */
+    public boolean isReadyToFlush() {
+        if (pageCount == 0) return false;
+        return pageCount >= size || System.currentTimeMillis() - createdMillis >= flushIntervalMillis;
+    }
+
+    public boolean isEmpty() {
+        return pageCount == 0;
+    }
+
+    /** Очистка пакета после записи в базу */
+    public void clear() {
+        flushCount++;
+        lemmaFrequencies.clear();
+        indexRows.clear();
+        pageCount = 0;
+        createdMillis = System.currentTimeMillis();
+    }
+
+    /** Количество записанных в базу пакетов */
+    public int getFlushCount() {
+        return flushCount;
+    }
+
+    public int getSiteId() {
+        return siteId;
+    }
+
+    /** Приращение частоты лемм: количество страниц пакета, на которых встречается лемма */
+    public Map<String, Integer> getLemmaFrequencies() {
+        return lemmaFrequencies;
+    }
+
+    public List<IndexRow> getIndexRows() {
+        return indexRows;
+    }
+}
@@ -0,0 +1,53 @@
+package searchengine.utils;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.IndexFieldSettings;
+import searchengine.config.LemmatizerSettings;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/** Этап лемматизации между обходом сайтов и записью в базу: разбор html и лемматизация загруженных
+ * страниц выполняются в пуле по количеству ядер процессора, пока потоки записи заняты обращениями к базе */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LemmatizationStage {
+
+    private final Lemmatizer lemmatizer;
+    private final LemmatizerSettings settings;
+    private final IndexFieldSettings fields;
+    private ForkJoinPool lemmatizationPool;
+
+    @PostConstruct
+    public void start() {
+        int threads = settings.getThreads() > 0 ? settings.getThreads() : Runtime.getRuntime().availableProcessors();
+        lemmatizationPool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lemmatizationPool.shutdownNow();
+    }
+
+    /** Асинхронная лемматизация страницы. При ошибке разбора страница записывается без лемм
+     * @param page {FetchedPage} принимает параметр загруженная страница
+     * @param knownPage {KnownPages.KnownPage} принимает параметр страница из предыдущей индексации либо null
+     * @return {CompletableFuture<AnalyzedPage>} возвращает результат разбора страницы
+     */
+    public CompletableFuture<AnalyzedPage> analyze(FetchedPage page, KnownPages.KnownPage knownPage) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return AnalyzedPage.of(page, knownPage, lemmatizer, fields);
+            } catch (RuntimeException e) {
+                log.error(page.path() + ": " + e);
+                PageText pageText = new PageText("", "");
+                return new AnalyzedPage(page, null, pageText, PageLemmas.of(pageText, lemmatizer, fields));
+            }
+        }, lemmatizationPool);
+    }
+}
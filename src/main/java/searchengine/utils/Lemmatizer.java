@@ -0,0 +1,131 @@
+package searchengine.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.morphology.LuceneMorphology;
+import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
+import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.springframework.stereotype.Component;
+import searchengine.config.LemmatizerSettings;
+import searchengine.dto.statistics.CacheStatisticsItem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/** Общий для всех потоков лемматизатор. Язык слова определяется по его алфавиту: кириллица разбирается
+ * русской морфологией, латиница - английской. Словари морфологии загружаются один раз при старте приложения,
+ * результаты разбора словоформ обоих языков хранятся в общем ограниченном по размеру кэше */
+@Component
+@Slf4j
+public class Lemmatizer {
+
+    /** Морфология одного языка
+     * @param luceneMorph {LuceneMorphology} словарь морфологии
+     * @param particlesNames {Set<String>} служебные части речи, слова которых не индексируются
+     */
+    private record Morphology(LuceneMorphology luceneMorph, Set<String> particlesNames) {
+    }
+
+    private static final Set<String> RUSSIAN_PARTICLES = Set.of("МЕЖД", "ПРЕДЛ", "СОЮЗ");
+    private static final Set<String> ENGLISH_PARTICLES = Set.of("ARTICLE", "CONJ", "PREP", "INT", "PART");
+
+    private final Morphology russian;
+    private final Morphology english;
+    private final Cache<String, WordForm> wordFormCache;
+
+    public Lemmatizer(LemmatizerSettings settings) throws IOException {
+        long start = System.currentTimeMillis();
+        russian = new Morphology(new RussianLuceneMorphology(), RUSSIAN_PARTICLES);
+        english = settings.isEnglish() ? new Morphology(new EnglishLuceneMorphology(), ENGLISH_PARTICLES) : null;
+        log.info("Словари морфологии загружены за " + (System.currentTimeMillis() - start) + " мс");
+        wordFormCache = Caffeine.newBuilder()
+                .maximumSize(settings.getCacheSize())
+                .recordStats()
+                .build();
+    }
+
+    /** Получение результата морфологического разбора слова
+     * @param word {String} получает параметр слово в любом регистре; ё приравнивается к е
+     * @return {WordForm} возвращает базовые формы слова и леммы без служебных частей речи
+     */
+    public WordForm getWordForm(String word) {
+        return wordFormCache.get(word.toLowerCase(Locale.ROOT).replace('ё', 'е'), this::parse);
+    }
+
+    /** Получение базовых форм слова
+     * @param word {String} получает параметр слово в любом регистре
+     * @return {List<String>} возвращает список базовых форм слова
+     */
+    public List<String> getNormalForms(String word) {
+        return getWordForm(word).normalForms();
+    }
+
+    /** Морфологический разбор слова, вызывается только при промахе кэша. Слово без морфологии
+     * своего языка либо с буквами не из словаря не разбирается, лемма такого слова - само слово
+     * @param word {String} получает параметр слово в нижнем регистре
+     * @return {WordForm} возвращает базовые формы слова и леммы без служебных частей речи
+     */
+    private WordForm parse(String word) {
+        Morphology morphology = getMorphology(word);
+        if (morphology == null || !morphology.luceneMorph().checkString(word)) {
+            return new WordForm(List.of(word), List.of(word));
+        }
+        List<String> normalForms = List.copyOf(morphology.luceneMorph().getNormalForms(word));
+        List<String> lemmas = new ArrayList<>();
+        for (String normalForm : normalForms) {
+            if (hasParticleProperty(morphology.luceneMorph().getMorphInfo(normalForm), morphology.particlesNames())) {
+                break;
+            }
+            lemmas.add(normalForm);
+        }
+        return new WordForm(normalForms, List.copyOf(lemmas));
+    }
+
+    /** Выбор морфологии по алфавиту первой буквы слова
+     * @param word {String} получает параметр непустое слово в нижнем регистре
+     * @return {Morphology} возвращает морфологию языка слова либо null
+     */
+    private Morphology getMorphology(String word) {
+        if (word.isEmpty()) return null;
+        Tokenizer.Script script = Tokenizer.getScript(word.charAt(0));
+        if (script == Tokenizer.Script.CYRILLIC) return russian;
+        if (script == Tokenizer.Script.LATIN) return english;
+        return null;
+    }
+
+    /** Проверка является ли слово служебной частью речи. Описание формы имеет вид
+     * {@code слово|код ЧАСТЬ_РЕЧИ признаки}, сравнивается часть речи
+     * @param wordBaseForms {List<String} получает параметр список описаний базовых форм слова
+     * @param particlesNames {Set<String>} получает параметр служебные части речи языка
+     * @return {boolean}
+     */
+    private static boolean hasParticleProperty(List<String> wordBaseForms, Set<String> particlesNames) {
+        for (String wordForm : wordBaseForms) {
+            String[] parts = wordForm.substring(wordForm.indexOf('|') + 1).split(" ");
+            if (parts.length > 1 && particlesNames.contains(parts[1].toUpperCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Получение статистики кэша словоформ
+     * @return {CacheStatisticsItem} возвращает статистику кэша
+     */
+    public CacheStatisticsItem getCacheStatistics() {
+        CacheStats stats = wordFormCache.stats();
+        CacheStatisticsItem item = new CacheStatisticsItem();
+        item.setName("lemmatizer");
+        item.setSize(wordFormCache.estimatedSize());
+        item.setHits(stats.hitCount());
+        item.setMisses(stats.missCount());
+        item.setHitRate(stats.hitRate());
+        item.setEvictions(stats.evictionCount());
+        return item;
+    }
+}
@@ -2,42 +2,59 @@ package searchengine.utils;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
 
-/** Класс задачи по обходу страниц сайта */
+/** Класс задачи по обходу страниц сайта. Каждая страница загружается один раз и передается
+ * в ограниченную очередь на запись в базу и лемматизацию, ссылки берутся из того же ответа.
+ * Если запрос к хосту пока не разрешен или очередь заполнена, задача откладывается и поток пула освобождается */
 @Slf4j
-public class LinksParser extends RecursiveTask<List<Page>>
+public class LinksParser implements Runnable
 {
+    /** Время повторной попытки передать страницу в заполненную очередь */
+    private static final long QUEUE_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
     private final Page page;
+    private final SiteCrawl crawl;
+    private FetchedPage fetchedPage;
 
-    public LinksParser(Page page) {
+    public LinksParser(Page page, SiteCrawl crawl) {
         this.page = page;
+        this.crawl = crawl;
     }
 
+    /** Выполнение задачи: каждый выход, кроме откладывания задачи, завершает ее ровно один раз;
+     * отложенная задача передает незавершенную задачу обхода своему повторному запуску */
     @Override
-    protected List<Page> compute(){
-        List<Page> links = new ArrayList<>();
-        List<LinksParser> linksParserList = new ArrayList<>();
+    public void run() {
+        boolean rescheduled = false;
         try {
-            Thread.sleep(5000);
-            for (Page child : page.getChildren())
-            {
-                links.add(new Page(child.getSiteParent(), child.getLink(), null));
-                LinksParser task = new LinksParser(child);
-                task.fork();
-                linksParserList.add(task);
+            if (crawl.isStopped()) return;
+            if (fetchedPage == null) {
+                long waitNanos = crawl.getRateLimiter().tryAcquire();
+                if (waitNanos > 0) {
+                    crawl.schedule(this, waitNanos);
+                    rescheduled = true;
+                    return;
+                }
+                try {
+                    fetchedPage = page.fetch(crawl.getFetcher(), crawl.getKnownPages());
+                } finally {
+                    crawl.getRateLimiter().release();
+                }
+                crawl.getThroughput().recordPage();
             }
-        } catch (InterruptedException e) {
-            log.error(e.toString());
-        }
-
-        for (LinksParser task : linksParserList) {
-           links.addAll(task.join());
+            if (!crawl.getPageQueue().offer(fetchedPage)) {
+                crawl.schedule(this, QUEUE_RETRY_NANOS);
+                rescheduled = true;
+                return;
+            }
+            for (Page child : page.getChildren(fetchedPage, crawl.getFrontier())) {
+                crawl.submit(new LinksParser(child, crawl));
+            }
+        } catch (RuntimeException e) {
+            log.error(page.getLink() + ": " + e);
+        } finally {
+            if (!rescheduled) crawl.finish();
         }
-
-       return links;
     }
-
 }
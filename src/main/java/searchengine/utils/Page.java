@@ -1,30 +1,22 @@
 package searchengine.utils;
 
-import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import searchengine.model.SiteEntity;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.logging.Logger;
 
 /** Класс страницы для обхода страниц сайтов при индексации */
-@Slf4j
 public class Page {
 
     private final String link;
     private final SiteEntity siteParent;
-    private final List<String> duplicateLinks;
+    private final int depth;
 
-    public Page(SiteEntity siteParent, String link, List<String> dublicateLinks) {
+    public Page(SiteEntity siteParent, String link, int depth) {
         this.siteParent = siteParent;
         this.link = link;
-        this.duplicateLinks = dublicateLinks;
+        this.depth = depth;
     }
 
     public SiteEntity getSiteParent() {
@@ -35,46 +27,51 @@ public class Page {
         return link;
     }
 
-    /** Получение дочерних страниц
-     * @return {Collection<Page>} возвращает коллекцию дочерних страниц
-     */
-    Collection<Page> getChildren() {
-        Collection<Page> children = new ArrayList<>();
+    public int getDepth() {
+        return depth;
+    }
 
-        try {
-            Connection.Response response = Jsoup.connect(siteParent.getUrl() + link).followRedirects(false).execute();
-            Connection connection = Jsoup.connect(siteParent.getUrl() + link).userAgent("Mozilla/5.0 (Windows; U; WindowsNT 5.1; en-US; rv1.8.1.6) Gecko/20070725 Firefox/2.0.0.6").referrer("http://www.google.com");
+    /** Загрузка страницы, выполняется один раз: из одного ответа берутся код, html и ссылки
+     * @param fetcher {PageFetcher} принимает параметр загрузчик страниц
+     * @return {FetchedPage} возвращает загруженную страницу, при ошибке загрузки код равен 0
+     */
+    public FetchedPage fetch(PageFetcher fetcher) {
+        return fetcher.fetch(siteParent.getUrl(), link);
+    }
 
-        if(response.statusCode() >= 400) {
-            return children;
+    /** Условная загрузка страницы при повторной индексации. Если страница не изменилась,
+     * ссылки берутся из ее сохраненного html
+     * @param fetcher {PageFetcher} принимает параметр загрузчик страниц
+     * @param knownPages {KnownPages} принимает параметр страницы сайта из предыдущей индексации
+     * @return {FetchedPage} возвращает загруженную страницу, при ошибке загрузки код равен 0
+     */
+    public FetchedPage fetch(PageFetcher fetcher, KnownPages knownPages) {
+        KnownPages.KnownPage knownPage = knownPages.get(link);
+        FetchedPage fetchedPage = fetcher.fetch(siteParent.getUrl(), link, knownPage);
+        if (fetchedPage.isNotModified() && knownPage != null) {
+            List<String> links = PageFetcher.getLinks(knownPages.loadContent(knownPage),
+                    UrlFrontier.toUrl(siteParent.getUrl(), link));
+            return new FetchedPage(link, fetchedPage.code(), "", links, fetchedPage.etag(), fetchedPage.lastModified(), null);
         }
-        Document doc = connection.get();
-
-        Elements links = doc.select("a[href]");
-
-            for (Element element : links) {
-                String link = element.attr("href");
-                if (duplicateLinks.contains(link)) {
-                    continue;
-                }
-                if (link.equals("/")) {
-                    continue;
-                }
-                if (link.equals(siteParent.getUrl())) {
-                    continue;
-                }
+        return fetchedPage;
+    }
 
-                if (link.charAt(0) == '/') {
-                    if (link.lastIndexOf("?") > -1) {
-                        continue;
-                    }
-                    duplicateLinks.add(link);
-                    Logger.getLogger(Page.class.getName()).info("link =  " + link);
-                    children.add(new Page(siteParent, link, duplicateLinks));
-                }
+    /** Получение дочерних страниц
+     * @param fetchedPage {FetchedPage} принимает параметр загруженная страница
+     * @param frontier {UrlFrontier} принимает параметр граница обхода сайта
+     * @return {Collection<Page>} возвращает коллекцию дочерних страниц, ранее не встречавшихся при обходе
+     */
+    Collection<Page> getChildren(FetchedPage fetchedPage, UrlFrontier frontier) {
+        Collection<Page> children = new ArrayList<>();
+        for (String url : fetchedPage.links()) {
+            String path = frontier.normalize(url);
+            if (path == null) {
+                continue;
+            }
+            if (!frontier.tryAdd(path, depth + 1)) {
+                continue;
             }
-        }  catch (Exception ex) {
-            log.error(ex.toString());
+            children.add(new Page(siteParent, path, depth + 1));
         }
         return children;
     }
@@ -0,0 +1,253 @@
+package searchengine.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.brotli.dec.BrotliInputStream;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.springframework.stereotype.Component;
+import searchengine.config.FetcherSettings;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/** Загрузка страниц общим HTTP-клиентом: HTTP/2 и keep-alive с общим пулом соединений по хостам,
+ * запросы выполняются в виртуальных потоках, поэтому тысячи одновременных загрузок не занимают
+ * тысячи потоков платформы */
+@Component
+@Slf4j
+public class PageFetcher {
+
+    /** Наибольшее количество перенаправлений при загрузке страницы */
+    private static final int MAX_REDIRECTS = 5;
+
+    private final FetcherSettings settings;
+    private final ExecutorService virtualThreadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient httpClient;
+
+    public PageFetcher(FetcherSettings settings) {
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(settings.getConnectTimeout())
+                .executor(virtualThreadExecutor)
+                .build();
+    }
+
+    /** Загрузка страницы в вызывающем потоке; предназначена для вызова из виртуальных потоков.
+     * Перенаправления в пределах сайта выполняются, содержимое и ссылки берутся из конечного ответа
+     * @param siteUrl {String} принимает параметр адрес сайта
+     * @param path {String} принимает параметр путь к странице от корня сайта
+     * @return {FetchedPage} возвращает загруженную страницу, при ошибке загрузки код равен 0
+     */
+    public FetchedPage fetch(String siteUrl, String path) {
+        return fetch(siteUrl, path, null);
+    }
+
+    /** Условная загрузка страницы: если страница не изменилась с предыдущей индексации,
+     * сервер отвечает кодом 304 без содержимого
+     * @param siteUrl {String} принимает параметр адрес сайта
+     * @param path {String} принимает параметр путь к странице от корня сайта
+     * @param knownPage {KnownPage} принимает параметр сведения о странице из предыдущей индексации либо null
+     * @return {FetchedPage} возвращает загруженную страницу, при ошибке загрузки код равен 0
+     */
+    public FetchedPage fetch(String siteUrl, String path, KnownPages.KnownPage knownPage) {
+        String url = UrlFrontier.toUrl(siteUrl, path);
+        int code = 0;
+        String content = "";
+        List<String> links = new ArrayList<>();
+        String etag = null;
+        String lastModified = null;
+        PageText pageText = null;
+        try {
+            HttpResponse<InputStream> response = send(url, knownPage);
+            for (int redirects = 0; isRedirect(response.statusCode()) && redirects < MAX_REDIRECTS; redirects++) {
+                String location = getRedirectLocation(siteUrl, url, response);
+                if (location == null) break;
+                response.body().close();
+                url = location;
+                response = send(url, knownPage);
+            }
+            code = response.statusCode();
+            etag = response.headers().firstValue("ETag").orElse(null);
+            lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+            try (InputStream raw = response.body()) {
+                if (code < 300 && isHtml(response)) {
+                    long maxBodySize = settings.getMaxBodySize().toBytes();
+                    byte[] bytes;
+                    try (InputStream body = decode(response, raw)) {
+                        bytes = readLimited(body, maxBodySize);
+                    }
+                    Document doc = Jsoup.parse(new ByteArrayInputStream(bytes), getCharset(response), url);
+                    links = getLinks(doc);
+                    if (bytes.length > maxBodySize) {
+                        log.warn(url + ": страница больше " + settings.getMaxBodySize() + ", содержимое не индексируется");
+                    } else {
+                        content = new String(bytes, doc.charset());
+                        pageText = PageText.of(doc);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error(e.toString());
+        } catch (Exception e) {
+            log.error(url + ": " + e);
+        }
+        return new FetchedPage(path, code, content, links, etag, lastModified, pageText);
+    }
+
+    /** Получение ссылок из сохраненного html страницы
+     * @param html {String} принимает параметр html страницы
+     * @param url {String} принимает параметр адрес страницы для разрешения относительных ссылок
+     * @return {List<String>} возвращает абсолютные адреса ссылок
+     */
+    public static List<String> getLinks(String html, String url) {
+        return getLinks(Jsoup.parse(html, url));
+    }
+
+    private static List<String> getLinks(Document doc) {
+        List<String> links = new ArrayList<>();
+        for (Element element : doc.select("a[href]")) {
+            links.add(element.attr("abs:href"));
+        }
+        return links;
+    }
+
+    /** Получение кода ответа страницы без загрузки ее содержимого
+     * @param url {String} принимает параметр адрес страницы
+     * @return {int} возвращает код ответа, 0 при ошибке соединения
+     */
+    public int getStatusCode(String url) {
+        try {
+            HttpResponse<Void> response = httpClient.send(createRequest(url).build(), HttpResponse.BodyHandlers.discarding());
+            return response.statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error(url + ": " + e);
+        }
+        return 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        virtualThreadExecutor.shutdownNow();
+    }
+
+    /** Запрос страницы; условные заголовки добавляются, если страница известна по предыдущей индексации */
+    private HttpResponse<InputStream> send(String url, KnownPages.KnownPage knownPage) throws Exception {
+        HttpRequest.Builder request = createRequest(url);
+        if (knownPage != null && knownPage.etag() != null) request.header("If-None-Match", knownPage.etag());
+        if (knownPage != null && knownPage.lastModified() != null) request.header("If-Modified-Since", knownPage.lastModified());
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private static boolean isRedirect(int code) {
+        return code == 301 || code == 302 || code == 303 || code == 307 || code == 308;
+    }
+
+    /** Адрес перенаправления, если он ведет на тот же сайт
+     * @param siteUrl {String} принимает параметр адрес сайта
+     * @param url {String} принимает параметр адрес запрошенной страницы
+     * @param response {HttpResponse<?>} принимает параметр ответ с перенаправлением
+     * @return {String} возвращает абсолютный адрес перенаправления либо null, если заголовка Location нет
+     * или он ведет на другой хост
+     */
+    private static String getRedirectLocation(String siteUrl, String url, HttpResponse<?> response) {
+        String location = response.headers().firstValue("Location").orElse(null);
+        if (location == null || location.isBlank()) return null;
+        try {
+            URI target = toUri(url).resolve(toUri(location.trim()));
+            String scheme = target.getScheme();
+            if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))) return null;
+            if (!UrlFrontier.normalizeHost(target.getHost()).equals(UrlFrontier.normalizeHost(URI.create(siteUrl).getHost()))) {
+                return null;
+            }
+            return target.toString();
+        } catch (Exception e) {
+            log.error(url + ": " + e);
+            return null;
+        }
+    }
+
+    private HttpRequest.Builder createRequest(String url) throws Exception {
+        return HttpRequest.newBuilder(toUri(url))
+                .timeout(settings.getRequestTimeout())
+                .header("User-Agent", settings.getUserAgent())
+                .header("Referer", settings.getReferrer())
+                .header("Accept", "text/html,application/xhtml+xml;q=0.9,*/*;q=0.8")
+                .header("Accept-Encoding", "gzip, deflate, br")
+                .GET();
+    }
+
+    /** Преобразование адреса в URI с кодированием недопустимых символов пути (кириллица, пробелы) */
+    private static URI toUri(String url) throws Exception {
+        try {
+            return URI.create(url);
+        } catch (IllegalArgumentException e) {
+            int schemeEnd = url.indexOf("://");
+            if (schemeEnd < 0) throw e;
+            int authorityStart = schemeEnd + 3;
+            int pathStart = authorityStart;
+            while (pathStart < url.length() && "/?#".indexOf(url.charAt(pathStart)) < 0) pathStart++;
+            int fragmentStart = url.indexOf('#', pathStart);
+            String rest = fragmentStart < 0 ? url.substring(pathStart) : url.substring(pathStart, fragmentStart);
+            int queryStart = rest.indexOf('?');
+            String path = queryStart < 0 ? rest : rest.substring(0, queryStart);
+            String query = queryStart < 0 ? null : rest.substring(queryStart + 1);
+            URI uri = new URI(url.substring(0, schemeEnd), url.substring(authorityStart, pathStart), path, query, null);
+            return URI.create(uri.toASCIIString());
+        }
+    }
+
+    /** Распаковка тела ответа в соответствии с заголовком Content-Encoding */
+    private static InputStream decode(HttpResponse<?> response, InputStream raw) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(raw);
+            case "deflate" -> new InflaterInputStream(raw);
+            case "br" -> new BrotliInputStream(raw);
+            default -> raw;
+        };
+    }
+
+    private static boolean isHtml(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("text/html").toLowerCase(Locale.ROOT);
+        return contentType.contains("text/html") || contentType.contains("application/xhtml+xml");
+    }
+
+    private static String getCharset(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (index < 0) return null;
+        String charset = contentType.substring(index + 8).split(";")[0].trim().replace("\"", "");
+        try {
+            return Charset.isSupported(charset) ? charset : null;
+        } catch (IllegalCharsetNameException e) {
+            return null;
+        }
+    }
+
+    /** Чтение тела ответа не больше чем на байт сверх ограничения: длина результата больше maxBytes
+     * означает, что страница обрезана */
+    private static byte[] readLimited(InputStream body, long maxBytes) throws IOException {
+        return body.readNBytes((int) Math.min(maxBytes + 1, Integer.MAX_VALUE - 8));
+    }
+}
@@ -0,0 +1,11 @@
+package searchengine.utils;
+
+import java.util.List;
+
+/** Событие окончания индексации отдельной страницы сайта
+ * @param siteId {int} id сайта
+ * @param pageId {int} id проиндексированной страницы
+ * @param deletedPageIds {List<Integer>} id прежних записей этой страницы, удаленных перед индексацией
+ */
+public record PageIndexedEvent(int siteId, int pageId, List<Integer> deletedPageIds) {
+}
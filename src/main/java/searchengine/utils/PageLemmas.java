@@ -0,0 +1,57 @@
+package searchengine.utils;
+
+import searchengine.config.IndexFieldSettings;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Леммы страницы с учетом полей: позиции лемм в тексте страницы и ранг каждой леммы -
+ * сумма ее вхождений в заголовок, подзаголовки и текст с весами полей из настроек.
+ * Ранг используется при ранжировании как частота слова, поэтому слова заголовка и подзаголовков
+ * поднимают страницу выше, а длина страницы считается в тех же взвешенных вхождениях
+ * @param tokens {PageTokens} границы слов и позиции лемм текста страницы
+ * @param ranks {Map<String, Float>} ранг каждой леммы страницы
+ * @param length {int} длина страницы - сумма рангов лемм
+ */
+public record PageLemmas(PageTokens tokens, Map<String, Float> ranks, int length) {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    /** Лемматизация полей страницы
+     * @param pageText {PageText} принимает параметр поля страницы
+     * @param lemmatizer {Lemmatizer} принимает параметр лемматизатор
+     * @param fields {IndexFieldSettings} принимает параметр веса полей
+     * @return {PageLemmas} возвращает позиции и ранги лемм страницы
+     */
+    public static PageLemmas of(PageText pageText, Lemmatizer lemmatizer, IndexFieldSettings fields) {
+        PageTokens tokens = PageTokens.of(pageText.text(), lemmatizer);
+        Map<String, Float> ranks = new HashMap<>();
+        tokens.getLemmaPositions().forEach((lemma, positions) -> ranks.put(lemma, positions.length * fields.getBodyBoost()));
+        addField(ranks, pageText.title(), fields.getTitleBoost(), lemmatizer);
+        addField(ranks, pageText.headings(), fields.getHeadingBoost(), lemmatizer);
+        ranks.values().removeIf(rank -> rank <= 0);
+        float length = 0;
+        for (float rank : ranks.values()) {
+            length += rank;
+        }
+        return new PageLemmas(tokens, ranks, Math.round(length));
+    }
+
+    private static void addField(Map<String, Float> ranks, String field, float boost, Lemmatizer lemmatizer) {
+        if (boost == 0 || field == null || field.isEmpty()) return;
+        Tokenizer tokenizer = Tokenizer.ofText(field);
+        while (tokenizer.next()) {
+            for (String lemma : lemmatizer.getWordForm(tokenizer.word()).lemmas()) {
+                ranks.merge(lemma, boost, Float::sum);
+            }
+        }
+    }
+
+    /** Позиции леммы в тексте страницы
+     * @param lemma {String} принимает параметр лемма
+     * @return {int[]} возвращает возрастающий список позиций, пустой для леммы только из заголовка или подзаголовков
+     */
+    public int[] getPositions(String lemma) {
+        return tokens.getLemmaPositions().getOrDefault(lemma, NO_POSITIONS);
+    }
+}
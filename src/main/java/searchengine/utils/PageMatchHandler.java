@@ -0,0 +1,66 @@
+package searchengine.utils;
+
+/** Обработчик страницы, найденной по словам запроса */
+@FunctionalInterface
+public interface PageMatchHandler {
+    /**
+     * @param siteId {int} id сайта страницы
+     * @param pageId {int} id страницы
+     * @param termFrequencies {float[]} ранг каждого слова запроса на странице; массив переиспользуется
+     *                        между вызовами и не должен сохраняться
+     * @param length {int} длина страницы в леммах, 0 если неизвестна
+     */
+    void accept(int siteId, int pageId, float[] termFrequencies, int length);
+
+    /** Передача найденной страницы: страница, сумма границ вклада слов которой по их рангам на странице
+     * меньше порога {@link #getThreshold()}, не оценивается, а только учитывается
+     * @param siteId {int} принимает параметр id сайта страницы
+     * @param pageId {int} принимает параметр id страницы
+     * @param termFrequencies {float[]} принимает параметр ранг каждого слова запроса на странице
+     * @param length {int} принимает параметр длина страницы в леммах, 0 если неизвестна
+     */
+    default void offer(int siteId, int pageId, float[] termFrequencies, int length) {
+        float threshold = getThreshold();
+        if (threshold > Float.NEGATIVE_INFINITY) {
+            float bound = 0;
+            for (int i = 0; i < termFrequencies.length; i++) {
+                if (termFrequencies[i] > 0) bound += getUpperBound(i, termFrequencies[i]);
+            }
+            if (bound < threshold) {
+                skip(siteId, pageId);
+                return;
+            }
+        }
+        accept(siteId, pageId, termFrequencies, length);
+    }
+
+    /** Страница найдена, но верхняя граница ее оценки меньше порога {@link #getThreshold()}:
+     * страница учитывается только в количестве найденных страниц
+     * @param siteId {int} принимает параметр id сайта страницы
+     * @param pageId {int} принимает параметр id страницы
+     */
+    default void skip(int siteId, int pageId) {
+    }
+
+    /** Механизм поиска пропустил без подсчета страницы, которые не могут попасть в лучшие (блоки списков
+     * вхождений, отсеченные по порогу), поэтому количество найденных страниц - нижняя оценка */
+    default void markEstimated() {
+    }
+
+    /** Наименьшая оценка, с которой страница еще может попасть в лучшие; страницы, верхняя граница
+     * оценки которых меньше, механизм поиска может не передавать
+     * @return {float} возвращает порог оценки, по умолчанию отсечения нет
+     */
+    default float getThreshold() {
+        return Float.NEGATIVE_INFINITY;
+    }
+
+    /** Верхняя граница вклада слова запроса в оценку страницы
+     * @param term {int} принимает параметр номер слова запроса
+     * @param maxFrequency {float} принимает параметр наибольший ранг слова в списке вхождений
+     * @return {float} возвращает границу вклада, по умолчанию без ограничения
+     */
+    default float getUpperBound(int term, float maxFrequency) {
+        return Float.POSITIVE_INFINITY;
+    }
+}
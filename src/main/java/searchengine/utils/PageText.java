@@ -0,0 +1,43 @@
+package searchengine.utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+/** Поля страницы без разметки, извлекаемые один раз при индексации из дерева html
+ * @param title {String} заголовок страницы
+ * @param text {String} видимый текст тела страницы без тегов, скриптов и стилей
+ * @param headings {String} текст подзаголовков h1-h6, каждый с новой строки
+ */
+public record PageText(String title, String text, String headings) {
+
+    private static final String HEADINGS_QUERY = "h1, h2, h3, h4, h5, h6";
+
+    public PageText(String title, String text) {
+        this(title, text, "");
+    }
+
+    /** Извлечение полей из html страницы
+     * @param html {String} принимает параметр html страницы
+     * @return {PageText} возвращает заголовок, текст и подзаголовки страницы
+     */
+    public static PageText of(String html) {
+        if (html == null || html.isBlank()) return new PageText("", "");
+        return of(Jsoup.parse(html));
+    }
+
+    /** Извлечение полей из уже разобранного html страницы
+     * @param doc {Document} принимает параметр дерево html страницы
+     * @return {PageText} возвращает заголовок, текст и подзаголовки страницы
+     */
+    public static PageText of(Document doc) {
+        Element body = doc.body();
+        if (body == null) return new PageText(doc.title(), "");
+        StringBuilder headings = new StringBuilder();
+        for (Element heading : body.select(HEADINGS_QUERY)) {
+            if (!headings.isEmpty()) headings.append('\n');
+            headings.append(heading.text());
+        }
+        return new PageText(doc.title(), body.text(), headings.toString());
+    }
+}
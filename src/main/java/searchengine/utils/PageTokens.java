@@ -0,0 +1,159 @@
+package searchengine.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Слова текста страницы: границы слов в тексте и позиции каждой леммы (порядковые номера слов).
+ * Вычисляются один раз при индексации; при поиске сниппет строится по позициям лемм запроса
+ * и границам слов без повторной лемматизации текста. Списки чисел хранятся разностями в формате varint */
+public class PageTokens {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final int[] starts;
+    private final int[] ends;
+    private final Map<String, int[]> lemmaPositions;
+
+    private PageTokens(int[] starts, int[] ends, Map<String, int[]> lemmaPositions) {
+        this.starts = starts;
+        this.ends = ends;
+        this.lemmaPositions = lemmaPositions;
+    }
+
+    /** Разбор текста страницы на слова с лемматизацией каждого слова
+     * @param text {String} принимает параметр текст страницы без разметки
+     * @param lemmatizer {Lemmatizer} принимает параметр лемматизатор
+     * @return {PageTokens} возвращает границы слов и позиции лемм
+     */
+    public static PageTokens of(String text, Lemmatizer lemmatizer) {
+        IntList starts = new IntList();
+        IntList ends = new IntList();
+        Map<String, IntList> positions = new HashMap<>();
+        Tokenizer tokenizer = Tokenizer.ofText(text);
+        while (tokenizer.next()) {
+            int position = starts.size();
+            starts.add(tokenizer.start());
+            ends.add(tokenizer.end());
+            List<String> lemmas = lemmatizer.getWordForm(tokenizer.word()).lemmas();
+            for (String lemma : lemmas) {
+                IntList lemmaPositions = positions.computeIfAbsent(lemma, l -> new IntList());
+                if (lemmaPositions.size() == 0 || lemmaPositions.last() != position) lemmaPositions.add(position);
+            }
+        }
+        Map<String, int[]> lemmaPositions = new HashMap<>();
+        positions.forEach((lemma, list) -> lemmaPositions.put(lemma, list.toArray()));
+        return new PageTokens(starts.toArray(), ends.toArray(), lemmaPositions);
+    }
+
+    /** Восстановление границ слов, сохраненных при индексации
+     * @param offsets {byte[]} принимает параметр границы слов в формате {@link #encodeOffsets()}
+     * @return {PageTokens} возвращает границы слов без позиций лемм
+     */
+    public static PageTokens ofOffsets(byte[] offsets) {
+        int[] values = decode(offsets);
+        int[] starts = new int[values.length / 2];
+        int[] ends = new int[values.length / 2];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = values[2 * i];
+            ends[i] = values[2 * i + 1];
+        }
+        return new PageTokens(starts, ends, Map.of());
+    }
+
+    /** Позиции лемм страницы: лемма - возрастающий список порядковых номеров слов */
+    public Map<String, int[]> getLemmaPositions() {
+        return lemmaPositions;
+    }
+
+    /** Количество слов в тексте */
+    public int size() {
+        return starts.length;
+    }
+
+    public int getStart(int position) {
+        return starts[position];
+    }
+
+    public int getEnd(int position) {
+        return ends[position];
+    }
+
+    /** Кодирование границ слов: начало и конец каждого слова разностями от предыдущей границы */
+    public byte[] encodeOffsets() {
+        int[] values = new int[starts.length * 2];
+        for (int i = 0; i < starts.length; i++) {
+            values[2 * i] = starts[i];
+            values[2 * i + 1] = ends[i];
+        }
+        return encode(values);
+    }
+
+    /** Кодирование возрастающего списка чисел разностями в формате varint
+     * @param values {int[]} принимает параметр неубывающий список неотрицательных чисел
+     * @return {byte[]} возвращает закодированный список
+     */
+    public static byte[] encode(int[] values) {
+        byte[] bytes = new byte[values.length * 5];
+        int offset = 0;
+        int last = 0;
+        for (int value : values) {
+            int delta = value - last;
+            last = value;
+            while ((delta & ~0x7F) != 0) {
+                bytes[offset++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            bytes[offset++] = (byte) delta;
+        }
+        return Arrays.copyOf(bytes, offset);
+    }
+
+    /** Декодирование списка, закодированного {@link #encode(int[])}
+     * @param bytes {byte[]} принимает параметр закодированный список либо null
+     * @return {int[]} возвращает список чисел, пустой для null
+     */
+    public static int[] decode(byte[] bytes) {
+        if (bytes == null) return NO_POSITIONS;
+        IntList values = new IntList();
+        int last = 0;
+        int offset = 0;
+        while (offset < bytes.length) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[offset++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            last += delta;
+            values.add(last);
+        }
+        return values.toArray();
+    }
+
+    /** Список int без упаковки в объекты */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package searchengine.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Общие для всех обходов ограничители частоты запросов, по одному на хост */
+@Component
+@RequiredArgsConstructor
+public class PolitenessScheduler {
+
+    private final CrawlSettings crawlSettings;
+    private final Map<String, HostRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    /** Получение ограничителя частоты запросов для хоста сайта
+     * @param url {String} принимает параметр url сайта
+     * @return {HostRateLimiter} возвращает ограничитель, общий для всех обходов этого хоста
+     */
+    public HostRateLimiter getRateLimiter(String url) {
+        return rateLimiters.computeIfAbsent(getHost(url), host ->
+                new HostRateLimiter(crawlSettings.getRequestsPerSecond(), crawlSettings.getMaxConnections()));
+    }
+
+    private static String getHost(String url) {
+        String host = URI.create(url).getHost();
+        return host == null ? url : host.toLowerCase();
+    }
+}
@@ -0,0 +1,112 @@
+package searchengine.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/** Операции над возрастающими списками позиций слов на странице. Все проверки выполняются
+ * одним проходом слиянием списков, текст страницы не загружается */
+public final class PositionMatcher {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private PositionMatcher() {
+    }
+
+    /** Позиции слова запроса на странице: объединение позиций всех его лемм
+     * @param term {List<String>} принимает параметр леммы слова запроса
+     * @param lemmaPositions {Map<String, int[]>} принимает параметр позиции лемм на странице
+     * @return {int[]} возвращает возрастающий список позиций без повторов
+     */
+    public static int[] getTermPositions(List<String> term, Map<String, int[]> lemmaPositions) {
+        int[] result = NO_POSITIONS;
+        for (String lemma : term) {
+            int[] positions = lemmaPositions.get(lemma);
+            if (positions == null || positions.length == 0) continue;
+            result = result.length == 0 ? positions : union(result, positions);
+        }
+        return result;
+    }
+
+    private static int[] union(int[] first, int[] second) {
+        int[] merged = new int[first.length + second.length];
+        int i = 0, j = 0, size = 0;
+        while (i < first.length || j < second.length) {
+            int next = j == second.length || (i < first.length && first[i] <= second[j]) ? first[i++] : second[j++];
+            if (size == 0 || merged[size - 1] != next) merged[size++] = next;
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    /** Поиск наименьшего окна, содержащего хотя бы одну позицию из каждого списка:
+     * на каждом шаге сдвигается указатель списка с наименьшей текущей позицией
+     * @param termPositions {List<int[]>} принимает параметр непустые возрастающие списки позиций
+     * @return {int[]} возвращает первую и последнюю позиции окна
+     */
+    public static int[] findMinWindow(List<int[]> termPositions) {
+        int[] pointers = new int[termPositions.size()];
+        int[] best = {0, Integer.MAX_VALUE};
+        while (true) {
+            int minList = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < pointers.length; i++) {
+                int position = termPositions.get(i)[pointers[i]];
+                if (position < min) {
+                    min = position;
+                    minList = i;
+                }
+                max = Math.max(max, position);
+            }
+            if ((long) max - min < (long) best[1] - best[0]) {
+                best[0] = min;
+                best[1] = max;
+            }
+            if (++pointers[minList] == termPositions.get(minList).length) return best;
+        }
+    }
+
+    /** Проверка фразы: есть ли начальная позиция, от которой каждое слово фразы стоит на своем месте.
+     * Кандидат на начало фразы перескакивает вперед по первому несовпавшему слову
+     * @param positions {int[][]} принимает параметр возрастающие списки позиций слов фразы
+     * @param offsets {int[]} принимает параметр позиции слов во фразе
+     * @return {boolean} true, если фраза есть на странице
+     */
+    public static boolean containsPhrase(int[][] positions, int[] offsets) {
+        int[] pointers = new int[positions.length];
+        if (positions[0].length == 0) return false;
+        long start = (long) positions[0][0] - offsets[0];
+        int i = 0;
+        int matched = 0;
+        while (matched < positions.length) {
+            long expected = start + offsets[i];
+            int[] list = positions[i];
+            while (pointers[i] < list.length && list[pointers[i]] < expected) pointers[i]++;
+            if (pointers[i] == list.length) return false;
+            if (list[pointers[i]] == expected) {
+                matched++;
+            } else {
+                start = list[pointers[i]] - offsets[i];
+                matched = 1;
+            }
+            i = (i + 1) % positions.length;
+        }
+        return true;
+    }
+
+    /** Проверка близости: есть ли позиции двух слов на расстоянии не больше заданного
+     * @param left {int[]} принимает параметр возрастающий список позиций первого слова
+     * @param right {int[]} принимает параметр возрастающий список позиций второго слова
+     * @param distance {int} принимает параметр наибольшее расстояние
+     * @return {boolean} true, если слова находятся рядом
+     */
+    public static boolean isNear(int[] left, int[] right, int distance) {
+        int i = 0, j = 0;
+        while (i < left.length && j < right.length) {
+            if (Math.abs((long) left[i] - right[j]) <= distance) return true;
+            if (left[i] < right[j]) i++;
+            else j++;
+        }
+        return false;
+    }
+}
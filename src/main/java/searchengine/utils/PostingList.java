@@ -0,0 +1,370 @@
+package searchengine.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/** Неизменяемый сжатый список вхождений леммы: возрастающие id страниц хранятся разностями
+ * в формате varint, ранги - массивом float. Через каждые {@link #SKIP_INTERVAL} записей
+ * сохраняется указатель пропуска, по которым курсор переходит к нужной странице без распаковки
+ * промежуточных записей, и наибольший ранг блока для отсечения блоков, страницы которых не могут
+ * попасть в лучшие. Список читается через буферы, поэтому может лежать как в куче,
+ * так и в отображенном в память файле сегмента */
+public final class PostingList {
+
+    /** Количество записей между указателями пропуска */
+    static final int SKIP_INTERVAL = 64;
+    /** Значение id страницы у исчерпанного курсора */
+    public static final int NO_MORE_PAGES = Integer.MAX_VALUE;
+
+    private final ByteBuffer pages;
+    private final FloatBuffer ranks;
+    private final int size;
+    private final float maxRank;
+    /** id первой страницы каждого блока */
+    private final IntBuffer skipPages;
+    /** Смещение в {@link #pages} сразу за первой записью каждого блока */
+    private final IntBuffer skipOffsets;
+    /** Наибольший ранг каждого блока */
+    private final FloatBuffer blockMaxRanks;
+
+    private PostingList(ByteBuffer pages, FloatBuffer ranks, int size, float maxRank, IntBuffer skipPages,
+                        IntBuffer skipOffsets, FloatBuffer blockMaxRanks) {
+        this.pages = pages;
+        this.ranks = ranks;
+        this.size = size;
+        this.maxRank = maxRank;
+        this.skipPages = skipPages;
+        this.skipOffsets = skipOffsets;
+        this.blockMaxRanks = blockMaxRanks;
+    }
+
+    /** Количество страниц в списке */
+    public int size() {
+        return size;
+    }
+
+    /** Наибольший ранг в списке; сохраняется при записи списка */
+    public float getMaxRank() {
+        return maxRank;
+    }
+
+    /** Размер списка в сериализованном виде, в байтах */
+    public int serializedSize() {
+        return 16 + 12 * skipPages.limit() + 4 * size + pages.limit();
+    }
+
+    /** Запись списка: размер, количество блоков, длина разностей, наибольший ранг, указатели пропуска,
+     * наибольшие ранги блоков, ранги, разности
+     * @param out {DataOutput} принимает параметр поток записи
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int blocks = skipPages.limit();
+        out.writeInt(size);
+        out.writeInt(blocks);
+        out.writeInt(pages.limit());
+        out.writeFloat(maxRank);
+        for (int i = 0; i < blocks; i++) out.writeInt(skipPages.get(i));
+        for (int i = 0; i < blocks; i++) out.writeInt(skipOffsets.get(i));
+        for (int i = 0; i < blocks; i++) out.writeFloat(blockMaxRanks.get(i));
+        for (int i = 0; i < size; i++) out.writeFloat(ranks.get(i));
+        for (int i = 0; i < pages.limit(); i++) out.writeByte(pages.get(i));
+    }
+
+    /** Чтение списка, записанного {@link #writeTo}, без копирования данных
+     * @param buffer {ByteBuffer} принимает параметр буфер, например отображенный в память файл
+     * @param offset {int} принимает параметр смещение списка в буфере
+     * @return {PostingList} возвращает список, читающий данные непосредственно из буфера
+     */
+    public static PostingList read(ByteBuffer buffer, int offset) {
+        int size = buffer.getInt(offset);
+        int blocks = buffer.getInt(offset + 4);
+        int pagesLength = buffer.getInt(offset + 8);
+        float maxRank = buffer.getFloat(offset + 12);
+        int position = offset + 16;
+        IntBuffer skipPages = buffer.slice(position, 4 * blocks).asIntBuffer();
+        position += 4 * blocks;
+        IntBuffer skipOffsets = buffer.slice(position, 4 * blocks).asIntBuffer();
+        position += 4 * blocks;
+        FloatBuffer blockMaxRanks = buffer.slice(position, 4 * blocks).asFloatBuffer();
+        position += 4 * blocks;
+        FloatBuffer ranks = buffer.slice(position, 4 * size).asFloatBuffer();
+        position += 4 * size;
+        ByteBuffer pages = buffer.slice(position, pagesLength);
+        return new PostingList(pages, ranks, size, maxRank, skipPages, skipOffsets, blockMaxRanks);
+    }
+
+    public Cursor cursor() {
+        return new ListCursor();
+    }
+
+    /** Курсор по объединению списков нескольких форм одного слова без построения объединенного списка;
+     * у страницы, встречающейся в нескольких списках, берется наибольший ранг
+     * @param lists {List<PostingList>} принимает параметр непустой набор списков вхождений
+     * @return {Cursor} возвращает курсор по объединению списков
+     */
+    public static Cursor cursor(List<PostingList> lists) {
+        if (lists.size() == 1) return lists.get(0).cursor();
+        Cursor[] cursors = new Cursor[lists.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = lists.get(i).cursor();
+        }
+        return new UnionCursor(cursors);
+    }
+
+    /** Курсор последовательного чтения списка. До первого вызова {@link #next()} или {@link #advance(int)}
+     * не указывает ни на одну запись */
+    public interface Cursor {
+
+        int pageId();
+
+        float rank();
+
+        /** Переход к следующей записи
+         * @return {boolean} false, если записи закончились
+         */
+        boolean next();
+
+        /** Переход к первой записи с id страницы не меньше заданного
+         * @param target {int} принимает параметр id страницы
+         * @return {boolean} false, если такой записи нет
+         */
+        boolean advance(int target);
+
+        /** Наибольший ранг блока, в который попала бы страница, без распаковки записей и без перемещения
+         * курсора; страницы передаются по возрастанию
+         * @param target {int} принимает параметр id страницы
+         * @return {float} возвращает наибольший ранг блока, 0 если страница раньше начала списка
+         */
+        float blockMaxRank(int target);
+
+        /** Последний id страницы, для которого верен результат последнего вызова {@link #blockMaxRank(int)} */
+        int blockEnd();
+    }
+
+    private final class ListCursor implements Cursor {
+        private int index = -1;
+        private int offset = 0;
+        private int pageId = -1;
+        /** Блок последнего вызова {@link #blockMaxRank(int)}, -1 до начала списка */
+        private int shallowBlock = -1;
+
+        @Override
+        public int pageId() {
+            return pageId;
+        }
+
+        @Override
+        public float rank() {
+            return ranks.get(index);
+        }
+
+        @Override
+        public boolean next() {
+            if (index >= size) return false;
+            index++;
+            if (index >= size) {
+                pageId = NO_MORE_PAGES;
+                return false;
+            }
+            if (index % SKIP_INTERVAL == 0) {
+                int block = index / SKIP_INTERVAL;
+                pageId = skipPages.get(block);
+                offset = skipOffsets.get(block);
+                return true;
+            }
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = pages.get(offset++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            pageId += delta;
+            return true;
+        }
+
+        /** Нужный блок ищется экспоненциальным, затем двоичным поиском по указателям пропуска */
+        @Override
+        public boolean advance(int target) {
+            if (index >= size) return false;
+            if (index >= 0 && pageId >= target) return true;
+            int block = findBlock(index < 0 ? 0 : index / SKIP_INTERVAL + 1, target);
+            if (block >= 0) {
+                index = block * SKIP_INTERVAL;
+                pageId = skipPages.get(block);
+                offset = skipOffsets.get(block);
+                if (pageId >= target) return true;
+            }
+            while (next()) {
+                if (pageId >= target) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public float blockMaxRank(int target) {
+            shallowBlock = findBlock(Math.max(shallowBlock, 0), target);
+            return shallowBlock < 0 ? 0 : blockMaxRanks.get(shallowBlock);
+        }
+
+        @Override
+        public int blockEnd() {
+            int next = shallowBlock + 1;
+            return next < skipPages.limit() ? skipPages.get(next) - 1 : NO_MORE_PAGES - 1;
+        }
+
+        /** Последний блок начиная с from, первая страница которого не больше target, либо -1 */
+        private int findBlock(int from, int target) {
+            int blocks = skipPages.limit();
+            if (from >= blocks || skipPages.get(from) > target) return -1;
+            int low = from;
+            int step = 1;
+            int high = from + step;
+            while (high < blocks && skipPages.get(high) <= target) {
+                low = high;
+                step <<= 1;
+                high = from + step;
+            }
+            high = Math.min(high, blocks);
+            while (high - low > 1) {
+                int middle = (low + high) >>> 1;
+                if (skipPages.get(middle) <= target) low = middle;
+                else high = middle;
+            }
+            return low;
+        }
+    }
+
+    /** Курсор по объединению списков: текущая страница - наименьшая среди курсоров списков */
+    private static final class UnionCursor implements Cursor {
+        private final Cursor[] cursors;
+        private int pageId = -1;
+        private float rank;
+
+        UnionCursor(Cursor[] cursors) {
+            this.cursors = cursors;
+        }
+
+        @Override
+        public int pageId() {
+            return pageId;
+        }
+
+        @Override
+        public float rank() {
+            return rank;
+        }
+
+        @Override
+        public boolean next() {
+            if (pageId == NO_MORE_PAGES) return false;
+            for (Cursor cursor : cursors) {
+                if (pageId < 0 || cursor.pageId() == pageId) cursor.next();
+            }
+            return update();
+        }
+
+        @Override
+        public boolean advance(int target) {
+            if (pageId == NO_MORE_PAGES) return false;
+            if (pageId >= 0 && pageId >= target) return true;
+            for (Cursor cursor : cursors) {
+                cursor.advance(target);
+            }
+            return update();
+        }
+
+        @Override
+        public float blockMaxRank(int target) {
+            float max = 0;
+            for (Cursor cursor : cursors) {
+                max = Math.max(max, cursor.blockMaxRank(target));
+            }
+            return max;
+        }
+
+        @Override
+        public int blockEnd() {
+            int end = NO_MORE_PAGES - 1;
+            for (Cursor cursor : cursors) {
+                end = Math.min(end, cursor.blockEnd());
+            }
+            return end;
+        }
+
+        private boolean update() {
+            pageId = NO_MORE_PAGES;
+            for (Cursor cursor : cursors) {
+                pageId = Math.min(pageId, cursor.pageId());
+            }
+            rank = 0;
+            if (pageId == NO_MORE_PAGES) return false;
+            for (Cursor cursor : cursors) {
+                if (cursor.pageId() == pageId) rank = Math.max(rank, cursor.rank());
+            }
+            return true;
+        }
+    }
+
+    /** Построитель списка; страницы добавляются по возрастанию id */
+    public static final class Builder {
+        private byte[] pages = new byte[16];
+        private float[] ranks = new float[8];
+        private int[] skipPages = new int[1];
+        private int[] skipOffsets = new int[1];
+        private float[] blockMaxRanks = new float[1];
+        private int offset = 0;
+        private int size = 0;
+        private int lastPage = 0;
+        private float maxRank = 0;
+
+        public void add(int pageId, float rank) {
+            if (size > 0 && pageId <= lastPage) {
+                throw new IllegalArgumentException("Страницы должны добавляться по возрастанию id: " + pageId);
+            }
+            writeVarint(size == 0 ? pageId : pageId - lastPage);
+            int block = size / SKIP_INTERVAL;
+            if (size % SKIP_INTERVAL == 0) {
+                if (block == skipPages.length) {
+                    skipPages = Arrays.copyOf(skipPages, block * 2);
+                    skipOffsets = Arrays.copyOf(skipOffsets, block * 2);
+                    blockMaxRanks = Arrays.copyOf(blockMaxRanks, block * 2);
+                }
+                skipPages[block] = pageId;
+                skipOffsets[block] = offset;
+                blockMaxRanks[block] = rank;
+            }
+            blockMaxRanks[block] = Math.max(blockMaxRanks[block], rank);
+            maxRank = Math.max(maxRank, rank);
+            if (size == ranks.length) ranks = Arrays.copyOf(ranks, size * 2);
+            ranks[size++] = rank;
+            lastPage = pageId;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public PostingList build() {
+            int blocks = (size + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+            return new PostingList(ByteBuffer.wrap(Arrays.copyOf(pages, offset)), FloatBuffer.wrap(Arrays.copyOf(ranks, size)),
+                    size, maxRank, IntBuffer.wrap(Arrays.copyOf(skipPages, blocks)),
+                    IntBuffer.wrap(Arrays.copyOf(skipOffsets, blocks)), FloatBuffer.wrap(Arrays.copyOf(blockMaxRanks, blocks)));
+        }
+
+        private void writeVarint(int value) {
+            if (offset + 5 > pages.length) pages = Arrays.copyOf(pages, pages.length * 2);
+            while ((value & ~0x7F) != 0) {
+                pages[offset++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            pages[offset++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package searchengine.utils;
+
+/** Прежнее ранжирование: сумма рангов слов запроса на странице без учета их частоты на сайте и длины страницы */
+public class RankSumScorer implements Scorer {
+
+    @Override
+    public float score(float[] termFrequencies, int length, RankingStatistics statistics) {
+        float score = 0;
+        for (float termFrequency : termFrequencies) {
+            score += termFrequency;
+        }
+        return score;
+    }
+
+    @Override
+    public float upperBound(int term, float maxFrequency, RankingStatistics statistics) {
+        return maxFrequency;
+    }
+}
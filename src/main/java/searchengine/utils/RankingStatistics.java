@@ -0,0 +1,9 @@
+package searchengine.utils;
+
+/** Статистика сайта для ранжирования страниц по словам запроса
+ * @param pageCount {int} количество проиндексированных страниц сайта
+ * @param averageLength {double} средняя длина страницы в леммах
+ * @param documentFrequencies {int[]} количество страниц сайта, содержащих каждое слово запроса
+ */
+public record RankingStatistics(int pageCount, double averageLength, int[] documentFrequencies) {
+}
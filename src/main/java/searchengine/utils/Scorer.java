@@ -0,0 +1,39 @@
+package searchengine.utils;
+
+import java.util.Locale;
+
+/** Функция ранжирования страницы по частотам слов запроса на ней */
+public interface Scorer {
+
+    /** Оценка страницы
+     * @param termFrequencies {float[]} принимает параметр количество вхождений каждого слова запроса на странице
+     * @param length {int} принимает параметр длина страницы в леммах, 0 если неизвестна
+     * @param statistics {RankingStatistics} принимает параметр статистика сайта страницы
+     * @return {float} возвращает оценку, чем больше, тем релевантнее страница
+     */
+    float score(float[] termFrequencies, int length, RankingStatistics statistics);
+
+    /** Верхняя граница вклада слова в оценку страницы, используется для отсечения страниц,
+     * которые не могут попасть в лучшие
+     * @param term {int} принимает параметр номер слова запроса
+     * @param maxFrequency {float} принимает параметр наибольшее количество вхождений слова на странице
+     * @param statistics {RankingStatistics} принимает параметр статистика сайта
+     * @return {float} возвращает вклад, которого слово не превышает ни на одной странице
+     */
+    float upperBound(int term, float maxFrequency, RankingStatistics statistics);
+
+    /** Создание функции ранжирования по имени
+     * @param name {String} принимает параметр имя: bm25, tfidf либо rank (сумма рангов лемм)
+     * @param k1 {float} принимает параметр насыщение частоты слова в BM25
+     * @param b {float} принимает параметр степень нормализации по длине страницы в BM25
+     * @return {Scorer} возвращает функцию ранжирования либо null, если имя неизвестно
+     */
+    static Scorer create(String name, float k1, float b) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "bm25" -> new Bm25Scorer(k1, b);
+            case "tfidf" -> new TfIdfScorer();
+            case "rank" -> new RankSumScorer();
+            default -> null;
+        };
+    }
+}
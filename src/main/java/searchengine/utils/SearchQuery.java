@@ -0,0 +1,154 @@
+package searchengine.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Разобранный поисковый запрос: слова в виде списков их лемм и позиционные условия.
+ * Фраза в кавычках "..." требует, чтобы слова шли на странице подряд в том же порядке
+ * (служебные слова занимают свои позиции), запись {@code слово NEAR/k слово} - чтобы слова
+ * находились не дальше k слов друг от друга. Без позиционных условий запрос - набор слов,
+ * из которых на странице должны быть не меньше minimumShouldMatch
+ */
+public class SearchQuery {
+
+    private static final String NEAR_OPERATOR = "near";
+
+    /** Слово фразы
+     * @param term {int} номер слова запроса
+     * @param offset {int} позиция слова во фразе с учетом служебных слов
+     */
+    public record PhraseTerm(int term, int offset) {
+    }
+
+    /** Условие близости двух слов запроса
+     * @param left {int} номер первого слова
+     * @param right {int} номер второго слова
+     * @param distance {int} наибольшее расстояние между словами в словах
+     */
+    public record Near(int left, int right, int distance) {
+    }
+
+    private final List<List<String>> terms;
+    private final List<List<PhraseTerm>> phrases;
+    private final List<Near> nears;
+    private final int minimumShouldMatch;
+
+    private SearchQuery(List<List<String>> terms, List<List<PhraseTerm>> phrases, List<Near> nears,
+                        int minimumShouldMatch) {
+        this.terms = terms;
+        this.phrases = phrases;
+        this.nears = nears;
+        this.minimumShouldMatch = minimumShouldMatch;
+    }
+
+    /** Разбор запроса
+     * @param query {String} принимает параметр текст запроса
+     * @param minimumShouldMatch {String} принимает параметр наименьшее количество слов запроса на странице:
+     *                           число, процент от количества слов ("75%") либо null для всех слов
+     * @param lemmatizer {Lemmatizer} принимает параметр лемматизатор
+     * @return {SearchQuery} возвращает разобранный запрос
+     */
+    public static SearchQuery parse(String query, String minimumShouldMatch, Lemmatizer lemmatizer) {
+        List<List<String>> terms = new ArrayList<>();
+        List<List<PhraseTerm>> phrases = new ArrayList<>();
+        List<Near> nears = new ArrayList<>();
+        List<PhraseTerm> phrase = null;
+        int phraseOffset = 0;
+        int lastTerm = -1;
+        int nearDistance = -1;
+        Tokenizer tokenizer = Tokenizer.ofText(query);
+        int gapStart = 0;
+        while (tokenizer.next()) {
+            for (int i = gapStart; i < tokenizer.start(); i++) {
+                if (query.charAt(i) != '"') continue;
+                if (phrase != null && phrase.size() > 1) phrases.add(List.copyOf(phrase));
+                phrase = phrase == null ? new ArrayList<>() : null;
+                phraseOffset = 0;
+            }
+            gapStart = tokenizer.end();
+            if (tokenizer.is(NEAR_OPERATOR)) {
+                int distanceEnd = skipDigits(query, tokenizer.end() + 1);
+                if (tokenizer.end() < query.length() && query.charAt(tokenizer.end()) == '/'
+                        && distanceEnd > tokenizer.end() + 1 && distanceEnd - tokenizer.end() <= 10) {
+                    nearDistance = Integer.parseInt(query, tokenizer.end() + 1, distanceEnd, 10);
+                    gapStart = distanceEnd;
+                    continue;
+                }
+            }
+            List<String> lemmas = lemmatizer.getWordForm(tokenizer.word()).lemmas();
+            int offset = phraseOffset++;
+            if (lemmas.isEmpty()) continue;
+            int term = terms.indexOf(lemmas);
+            if (term < 0) {
+                term = terms.size();
+                terms.add(lemmas);
+            }
+            if (phrase != null) phrase.add(new PhraseTerm(term, offset));
+            if (nearDistance >= 0 && lastTerm >= 0 && lastTerm != term) nears.add(new Near(lastTerm, term, nearDistance));
+            nearDistance = -1;
+            lastTerm = term;
+        }
+        if (phrase != null && phrase.size() > 1) phrases.add(List.copyOf(phrase));
+        return new SearchQuery(terms, phrases, nears, parseMinimumShouldMatch(minimumShouldMatch, terms.size()));
+    }
+
+    private static int skipDigits(String query, int from) {
+        int i = from;
+        while (i < query.length() && query.charAt(i) >= '0' && query.charAt(i) <= '9') i++;
+        return i;
+    }
+
+    private static int parseMinimumShouldMatch(String value, int termCount) {
+        if (value == null || value.isBlank()) return termCount;
+        value = value.trim();
+        int count;
+        try {
+            count = value.endsWith("%")
+                    ? (int) Math.ceil(termCount * Double.parseDouble(value.substring(0, value.length() - 1)) / 100)
+                    : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return termCount;
+        }
+        return Math.max(1, Math.min(count, termCount));
+    }
+
+    /** Слова запроса в виде списков их лемм */
+    public List<List<String>> getTerms() {
+        return terms;
+    }
+
+    public List<List<PhraseTerm>> getPhrases() {
+        return phrases;
+    }
+
+    public List<Near> getNears() {
+        return nears;
+    }
+
+    /** Наименьшее количество слов запроса, которые должны быть на странице */
+    public int getMinimumShouldMatch() {
+        return minimumShouldMatch;
+    }
+
+    /** Есть ли в запросе условия на позиции слов */
+    public boolean isPositional() {
+        return !phrases.isEmpty() || !nears.isEmpty();
+    }
+
+    /** Описание позиционных условий и minimumShouldMatch через леммы слов, не зависящее от порядка слов в запросе;
+     * используется в ключе кэша результатов поиска */
+    public String getOperatorsKey() {
+        StringBuilder key = new StringBuilder("msm=").append(minimumShouldMatch);
+        for (List<PhraseTerm> phrase : phrases) {
+            key.append(";phrase=");
+            for (PhraseTerm phraseTerm : phrase) {
+                key.append(terms.get(phraseTerm.term())).append('@').append(phraseTerm.offset());
+            }
+        }
+        for (Near near : nears) {
+            key.append(";near=").append(terms.get(near.left())).append('~').append(terms.get(near.right()))
+                    .append('/').append(near.distance());
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package searchengine.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.dto.search.SearchData;
+import searchengine.dto.search.SearchResponseOk;
+import searchengine.dto.statistics.CacheStatisticsItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Кэш результатов поиска с вытеснением W-TinyLFU, ограниченный суммарным объемом ответов.
+ * Ключ - нормализованный набор лемм запроса, сайт, диапазон и параметры ранжирования. Запись хранит
+ * поколения индексов сайтов на момент поиска и при их изменении считается устаревшей */
+@Component
+public class SearchResultCache {
+
+    /** Ключ кэша
+     * @param terms {List<List<String>>} упорядоченные слова запроса в виде упорядоченных списков лемм
+     * @param operators {String} позиционные условия запроса и minimumShouldMatch
+     * @param site {String} адрес сайта, пустая строка для поиска по всем сайтам
+     * @param offset {int} сдвиг от начала списка результатов
+     * @param limit {int} количество результатов
+     * @param ranking {String} параметры ранжирования
+     */
+    public record Key(List<List<String>> terms, String operators, String site, int offset, int limit, String ranking) {
+    }
+
+    private record Entry(SearchResponseOk response, int[] siteIds, long[] generations) {
+    }
+
+    private final IndexGenerations indexGenerations;
+    private final Cache<Key, Entry> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SearchResultCache(SearchSettings settings, IndexGenerations indexGenerations) {
+        this.indexGenerations = indexGenerations;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(settings.getResultCacheSize().toBytes())
+                .weigher((Key key, Entry entry) -> weigh(entry.response()))
+                .recordStats()
+                .build();
+    }
+
+    /** Создание ключа; порядок слов в запросе и порядок лемм слова не влияют на ключ */
+    public static Key key(List<List<String>> terms, String operators, String site, int offset, int limit, String ranking) {
+        List<List<String>> normalized = new ArrayList<>();
+        for (List<String> term : terms) {
+            List<String> lemmas = new ArrayList<>(term);
+            lemmas.sort(Comparator.naturalOrder());
+            normalized.add(List.copyOf(lemmas));
+        }
+        normalized.sort(Comparator.comparing(Object::toString));
+        return new Key(List.copyOf(normalized), operators, site, offset, limit, ranking);
+    }
+
+    /** Получение действительного результата поиска
+     * @param key {Key} принимает параметр ключ
+     * @param siteIds {List<Integer>} принимает параметр id сайтов, по которым ведется поиск
+     * @return {SearchResponseOk} возвращает закэшированный ответ либо null
+     */
+    public SearchResponseOk get(Key key, List<Integer> siteIds) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && Arrays.equals(entry.siteIds(), toArray(siteIds))
+                && Arrays.equals(entry.generations(), getGenerations(siteIds))) {
+            hits.increment();
+            return entry.response();
+        }
+        if (entry != null) cache.invalidate(key);
+        misses.increment();
+        return null;
+    }
+
+    /** Сохранение результата поиска с поколениями индексов, прочитанными до начала поиска
+     * @param key {Key} принимает параметр ключ
+     * @param siteIds {List<Integer>} принимает параметр id сайтов, по которым велся поиск
+     * @param generations {long[]} принимает параметр поколения индексов сайтов до начала поиска
+     * @param response {SearchResponseOk} принимает параметр ответ
+     */
+    public void put(Key key, List<Integer> siteIds, long[] generations, SearchResponseOk response) {
+        cache.put(key, new Entry(response, toArray(siteIds), generations));
+    }
+
+    /** Текущие поколения индексов сайтов */
+    public long[] getGenerations(List<Integer> siteIds) {
+        long[] generations = new long[siteIds.size()];
+        for (int i = 0; i < generations.length; i++) {
+            generations[i] = indexGenerations.get(siteIds.get(i));
+        }
+        return generations;
+    }
+
+    /** Получение статистики кэша результатов поиска
+     * @return {CacheStatisticsItem} возвращает статистику кэша
+     */
+    public CacheStatisticsItem getCacheStatistics() {
+        CacheStatisticsItem item = new CacheStatisticsItem();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        item.setName("search-results");
+        item.setSize(cache.estimatedSize());
+        item.setHits(hitCount);
+        item.setMisses(missCount);
+        item.setHitRate(hitCount + missCount == 0 ? 1.0 : (double) hitCount / (hitCount + missCount));
+        item.setEvictions(cache.stats().evictionCount());
+        return item;
+    }
+
+    private static int[] toArray(List<Integer> siteIds) {
+        int[] array = new int[siteIds.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = siteIds.get(i);
+        }
+        return array;
+    }
+
+    /** Примерный объем ответа в памяти в байтах */
+    private static int weigh(SearchResponseOk response) {
+        long weight = 256;
+        for (SearchData data : response.getData()) {
+            weight += 128 + 2L * (length(data.getSite()) + length(data.getSiteName()) + length(data.getUri())
+                    + length(data.getTitle()) + length(data.getSnippet()));
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
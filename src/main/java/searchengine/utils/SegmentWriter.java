@@ -0,0 +1,147 @@
+package searchengine.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Потоковая запись неизменяемого сегмента индекса сайта. Списки вхождений пишутся в файл сразу
+ * по мере добавления, в памяти держатся только словарь лемм и таблица страниц. Файл пишется
+ * во временный и переименовывается после записи, поэтому недописанный сегмент никогда не открывается.
+ * Формат описан в {@link IndexSegment} */
+public final class SegmentWriter implements Closeable {
+
+    private record DictionaryEntry(String lemma, long postingsOffset) {
+    }
+
+    private final Path file;
+    private final Path tempFile;
+    private final int siteId;
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final List<DictionaryEntry> dictionary = new ArrayList<>();
+    private final Map<Integer, Integer> pageLengths = new HashMap<>();
+    private boolean finished = false;
+
+    public SegmentWriter(Path file, int siteId) throws IOException {
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.siteId = siteId;
+        this.channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        out.write(new byte[IndexSegment.HEADER_SIZE]);
+    }
+
+    /** Добавление списка вхождений леммы; длина страниц увеличивается на ранг леммы на странице
+     * @param lemma {String} принимает параметр лемма
+     * @param postings {PostingList} принимает параметр список вхождений леммы
+     */
+    public void addPostings(String lemma, PostingList postings) throws IOException {
+        if (postings.size() == 0) return;
+        dictionary.add(new DictionaryEntry(lemma, out.size()));
+        postings.writeTo(out);
+        checkSize();
+        PostingList.Cursor cursor = postings.cursor();
+        while (cursor.next()) {
+            pageLengths.merge(cursor.pageId(), Math.round(cursor.rank()), Integer::sum);
+        }
+    }
+
+    /** Добавление страницы без лемм, например страницы с кодом ошибки
+     * @param pageId {int} принимает параметр id страницы
+     */
+    public void addPage(int pageId) {
+        pageLengths.putIfAbsent(pageId, 0);
+    }
+
+    /** Добавление отметки об удалении страницы: страница скрывается во всех более старых сегментах
+     * @param pageId {int} принимает параметр id удаленной страницы
+     */
+    public void addDeletedPage(int pageId) {
+        pageLengths.put(pageId, IndexSegment.DELETED_PAGE);
+    }
+
+    /** Запись таблицы страниц, словаря и заголовка, переименование временного файла в файл сегмента */
+    public void finish() throws IOException {
+        int[] pageIds = new int[pageLengths.size()];
+        int i = 0;
+        for (int pageId : pageLengths.keySet()) pageIds[i++] = pageId;
+        Arrays.sort(pageIds);
+        long pageTableOffset = out.size();
+        for (int pageId : pageIds) out.writeInt(pageId);
+        long totalPageLength = 0;
+        for (int pageId : pageIds) {
+            int length = pageLengths.get(pageId);
+            out.writeInt(length);
+            if (length > 0) totalPageLength += length;
+        }
+
+        dictionary.sort(Comparator.comparing(DictionaryEntry::lemma));
+        long dictionaryOffset = out.size();
+        int lemmaBytesOffset = 0;
+        List<byte[]> lemmaBytes = new ArrayList<>(dictionary.size());
+        String previous = null;
+        int lemmaCount = 0;
+        for (DictionaryEntry entry : dictionary) {
+            if (entry.lemma().equals(previous)) continue;
+            previous = entry.lemma();
+            byte[] bytes = entry.lemma().getBytes(StandardCharsets.UTF_8);
+            lemmaBytes.add(bytes);
+            out.writeInt(lemmaBytesOffset);
+            out.writeInt(bytes.length);
+            out.writeLong(entry.postingsOffset());
+            lemmaBytesOffset += bytes.length;
+            lemmaCount++;
+        }
+        long lemmaBytesStart = out.size();
+        for (byte[] bytes : lemmaBytes) out.write(bytes);
+        checkSize();
+        out.flush();
+
+        ByteBuffer header = ByteBuffer.allocate(IndexSegment.HEADER_SIZE);
+        header.putInt(IndexSegment.MAGIC);
+        header.putInt(IndexSegment.VERSION);
+        header.putInt(siteId);
+        header.putInt(lemmaCount);
+        header.putInt(pageIds.length);
+        header.putLong(pageTableOffset);
+        header.putLong(dictionaryOffset);
+        header.putLong(lemmaBytesStart);
+        header.putLong(totalPageLength);
+        header.flip();
+        channel.write(header, 0);
+        channel.force(true);
+        out.close();
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        finished = true;
+    }
+
+    /** Закрытие записи; если сегмент не был дописан, временный файл удаляется */
+    @Override
+    public void close() throws IOException {
+        if (finished) return;
+        out.close();
+        Files.deleteIfExists(tempFile);
+    }
+
+    private void checkSize() throws IOException {
+        if (out.size() < 0 || out.size() >= Integer.MAX_VALUE - (1 << 16)) {
+            throw new IOException("Сегмент сайта " + siteId + " превышает 2 ГБ");
+        }
+    }
+}
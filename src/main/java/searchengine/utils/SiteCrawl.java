@@ -0,0 +1,101 @@
+package searchengine.utils;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Класс одного обхода сайта: общие для задач обхода очередь загруженных страниц, ограничитель частоты
+ * запросов и счетчик незавершенных задач. Задачи не ждут в потоках пула, а откладываются до времени,
+ * когда запрос будет разрешен */
+public class SiteCrawl {
+
+    private final ExecutorService executor;
+    private final BlockingQueue<FetchedPage> pageQueue;
+    private final HostRateLimiter rateLimiter;
+    private final CrawlMetrics.SiteThroughput throughput;
+    private final UrlFrontier frontier;
+    private final PageFetcher fetcher;
+    private final KnownPages knownPages;
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    public SiteCrawl(ExecutorService executor, BlockingQueue<FetchedPage> pageQueue,
+                     HostRateLimiter rateLimiter, CrawlMetrics.SiteThroughput throughput, UrlFrontier frontier,
+                     PageFetcher fetcher, KnownPages knownPages) {
+        this.executor = executor;
+        this.pageQueue = pageQueue;
+        this.rateLimiter = rateLimiter;
+        this.throughput = throughput;
+        this.frontier = frontier;
+        this.fetcher = fetcher;
+        this.knownPages = knownPages;
+    }
+
+    /** Запуск обхода с заданной страницы
+     * @param root {Page} принимает параметр начальная страница
+     * @return {CompletableFuture<Void>} завершается, когда выполнены все задачи обхода
+     */
+    public CompletableFuture<Void> start(Page root) {
+        frontier.tryAdd(root.getLink(), root.getDepth());
+        submit(new LinksParser(root, this));
+        return completion;
+    }
+
+    /** Добавление новой задачи обхода */
+    void submit(LinksParser task) {
+        pendingTasks.incrementAndGet();
+        execute(task);
+    }
+
+    /** Повторный запуск задачи через заданное время без занятия потока пула на время ожидания */
+    void schedule(LinksParser task, long delayNanos) {
+        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, this::execute).execute(task);
+    }
+
+    /** Завершение задачи обхода */
+    void finish() {
+        if (pendingTasks.decrementAndGet() == 0) {
+            throughput.finish();
+            completion.complete(null);
+        }
+    }
+
+    boolean isStopped() {
+        return executor.isShutdown();
+    }
+
+    BlockingQueue<FetchedPage> getPageQueue() {
+        return pageQueue;
+    }
+
+    HostRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    PageFetcher getFetcher() {
+        return fetcher;
+    }
+
+    KnownPages getKnownPages() {
+        return knownPages;
+    }
+
+    UrlFrontier getFrontier() {
+        return frontier;
+    }
+
+    CrawlMetrics.SiteThroughput getThroughput() {
+        return throughput;
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            finish();
+        }
+    }
+}
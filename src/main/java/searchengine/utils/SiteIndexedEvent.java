@@ -0,0 +1,7 @@
+package searchengine.utils;
+
+/** Событие окончания индексации сайта
+ * @param siteId {int} id сайта
+ */
+public record SiteIndexedEvent(int siteId) {
+}
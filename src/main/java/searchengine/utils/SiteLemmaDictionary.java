@@ -0,0 +1,78 @@
+package searchengine.utils;
+
+import searchengine.model.LemmaEntity;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Словарь лемм сайта в памяти на время индексации: лемма -> id и накопленное, но не записанное
+ * в базу приращение частоты */
+public class SiteLemmaDictionary {
+
+    private final int siteId;
+    private final Map<String, Integer> lemmaIds = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> pendingFrequencies = new ConcurrentHashMap<>();
+
+    public SiteLemmaDictionary(int siteId) {
+        this.siteId = siteId;
+    }
+
+    /** Загрузка словаря из записей лемм сайта
+     * @param siteId {int} принимает параметр id сайта
+     * @param lemmaEntityList {List<LemmaEntity>} принимает параметр леммы сайта из базы
+     * @return {SiteLemmaDictionary} возвращает заполненный словарь
+     */
+    public static SiteLemmaDictionary load(int siteId, List<LemmaEntity> lemmaEntityList) {
+        SiteLemmaDictionary dictionary = new SiteLemmaDictionary(siteId);
+        for (LemmaEntity lemmaEntity : lemmaEntityList) {
+            dictionary.lemmaIds.put(lemmaEntity.getLemma(), lemmaEntity.getId());
+        }
+        return dictionary;
+    }
+
+    public int getSiteId() {
+        return siteId;
+    }
+
+    /** Получение id леммы
+     * @param lemma {String} принимает параметр лемма
+     * @return {Integer} возвращает id леммы либо null, если леммы нет в базе
+     */
+    public Integer getId(String lemma) {
+        return lemmaIds.get(lemma);
+    }
+
+    /** Добавление в словарь леммы, получившей id в базе */
+    public void put(String lemma, int id) {
+        lemmaIds.put(lemma, id);
+    }
+
+    /** Увеличение частоты известной леммы без обращения к базе
+     * @param id {int} принимает параметр id леммы
+     * @param delta {int} принимает параметр приращение частоты
+     */
+    public void addFrequency(int id, int delta) {
+        pendingFrequencies.merge(id, delta, Integer::sum);
+    }
+
+    /** Снимок накопленных приращений частоты; приращения остаются в словаре до {@link #commitFrequencies}
+     * @return {Map<Integer, Integer>} возвращает приращение частоты по id леммы
+     */
+    public Map<Integer, Integer> getPendingFrequencies() {
+        return new HashMap<>(pendingFrequencies);
+    }
+
+    /** Вычитание записанных в базу приращений частоты; приращения, накопленные после снимка, сохраняются
+     * @param written {Map<Integer, Integer>} принимает параметр записанные приращения частоты по id леммы
+     */
+    public void commitFrequencies(Map<Integer, Integer> written) {
+        written.forEach((id, delta) ->
+                pendingFrequencies.computeIfPresent(id, (key, pending) -> pending == delta.intValue() ? null : pending - delta));
+    }
+
+    public int size() {
+        return lemmaIds.size();
+    }
+}
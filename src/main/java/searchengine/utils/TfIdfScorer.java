@@ -0,0 +1,23 @@
+package searchengine.utils;
+
+/** Ранжирование TF-IDF: логарифм частоты слова на странице, умноженный на обратную частоту слова на сайте */
+public class TfIdfScorer implements Scorer {
+
+    @Override
+    public float score(float[] termFrequencies, int length, RankingStatistics statistics) {
+        double score = 0;
+        for (int i = 0; i < termFrequencies.length; i++) {
+            if (termFrequencies[i] <= 0) continue;
+            score += (1 + Math.log(termFrequencies[i])) * Bm25Scorer.idf(statistics.pageCount(),
+                    statistics.documentFrequencies()[i]);
+        }
+        return (float) score;
+    }
+
+    @Override
+    public float upperBound(int term, float maxFrequency, RankingStatistics statistics) {
+        if (maxFrequency <= 0) return 0;
+        return (float) ((1 + Math.log(maxFrequency)) * Bm25Scorer.idf(statistics.pageCount(),
+                statistics.documentFrequencies()[term]));
+    }
+}
@@ -0,0 +1,123 @@
+package searchengine.utils;
+
+import java.util.Arrays;
+
+/** Разбор текста на слова одним проходом по символам без регулярных выражений и промежуточных строк.
+ * Слово - непрерывная последовательность кириллических либо латинских букв; смена алфавита разделяет слова.
+ * Текущее слово приводится к нижнему регистру (ё заменяется на е) в переиспользуемом буфере
+ */
+public final class Tokenizer {
+
+    /** Алфавит слова */
+    public enum Script {
+        CYRILLIC, LATIN
+    }
+
+    private final CharSequence text;
+    private int offset = 0;
+    private int start = -1;
+    private int end = -1;
+    private Script script;
+    private char[] buffer = new char[32];
+    private int length = 0;
+
+    private Tokenizer(CharSequence text) {
+        this.text = text;
+    }
+
+    /** Разбор текста без разметки
+     * @param text {CharSequence} принимает параметр текст
+     * @return {Tokenizer} возвращает разбор, установленный перед первым словом
+     */
+    public static Tokenizer ofText(CharSequence text) {
+        return new Tokenizer(text == null ? "" : text);
+    }
+
+    /** Переход к следующему слову
+     * @return {boolean} false, если слов больше нет
+     */
+    public boolean next() {
+        int size = text.length();
+        while (offset < size) {
+            char c = text.charAt(offset);
+            Script wordScript = getScript(c);
+            if (wordScript == null) {
+                offset++;
+                continue;
+            }
+            start = offset;
+            script = wordScript;
+            length = 0;
+            while (offset < size && getScript(c = text.charAt(offset)) == wordScript) {
+                if (length == buffer.length) buffer = Arrays.copyOf(buffer, length * 2);
+                buffer[length++] = fold(c);
+                offset++;
+            }
+            end = offset;
+            return true;
+        }
+        start = end = -1;
+        length = 0;
+        return false;
+    }
+
+    /** Начало текущего слова в тексте */
+    public int start() {
+        return start;
+    }
+
+    /** Конец текущего слова в тексте (не включая) */
+    public int end() {
+        return end;
+    }
+
+    public Script script() {
+        return script;
+    }
+
+    /** Буфер с текущим словом в нижнем регистре; действителен до следующего вызова {@link #next()} */
+    public char[] buffer() {
+        return buffer;
+    }
+
+    /** Длина текущего слова */
+    public int length() {
+        return length;
+    }
+
+    /** Текущее слово в нижнем регистре
+     * @return {String} возвращает новую строку со словом
+     */
+    public String word() {
+        return new String(buffer, 0, length);
+    }
+
+    /** Проверка, совпадает ли текущее слово с заданным словом в нижнем регистре без создания строки
+     * @param word {String} принимает параметр слово в нижнем регистре
+     * @return {boolean} true, если слова совпадают
+     */
+    public boolean is(String word) {
+        if (word.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /** Алфавит буквы
+     * @param c {char} принимает параметр символ
+     * @return {Script} возвращает алфавит либо null, если символ не буква кириллицы или латиницы
+     */
+    static Script getScript(char c) {
+        if ((c >= 'а' && c <= 'я') || (c >= 'А' && c <= 'Я') || c == 'ё' || c == 'Ё') return Script.CYRILLIC;
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) return Script.LATIN;
+        return null;
+    }
+
+    private static char fold(char c) {
+        if (c >= 'А' && c <= 'Я') return (char) (c + ('а' - 'А'));
+        if (c == 'ё' || c == 'Ё') return 'е';
+        if (c >= 'A' && c <= 'Z') return (char) (c + ('a' - 'A'));
+        return c;
+    }
+}
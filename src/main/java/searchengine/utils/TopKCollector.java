@@ -0,0 +1,128 @@
+package searchengine.utils;
+
+/** Отбор k лучших страниц без создания объектов на каждую страницу: двоичная куча на массивах
+ * int (id страницы) и float (оценка), в вершине худшая из отобранных страниц. При равной оценке
+ * лучше страница с меньшим id, поэтому результат не зависит от порядка поступления страниц.
+ * Память O(k), время O(n log k) */
+public class TopKCollector {
+
+    private final int capacity;
+    private final int[] pageIds;
+    private final float[] scores;
+    private int size = 0;
+    private int total = 0;
+    private float maxScore = Float.NEGATIVE_INFINITY;
+
+    public TopKCollector(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        this.pageIds = new int[this.capacity];
+        this.scores = new float[this.capacity];
+    }
+
+    /** Предложение страницы
+     * @param pageId {int} принимает параметр id страницы
+     * @param score {float} принимает параметр оценка страницы
+     */
+    public void offer(int pageId, float score) {
+        total++;
+        if (score > maxScore) maxScore = score;
+        if (capacity == 0) return;
+        if (size < capacity) {
+            pageIds[size] = pageId;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (isWorse(pageIds[0], scores[0], pageId, score)) {
+            pageIds[0] = pageId;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /** Учет найденной страницы, которая не может попасть в лучшие и поэтому не оценивалась */
+    public void count() {
+        total++;
+    }
+
+    /** Количество предложенных и учтенных страниц */
+    public int getTotal() {
+        return total;
+    }
+
+    /** Наибольшая оценка среди всех предложенных страниц, 0 если страниц не было */
+    public float getMaxScore() {
+        return total == 0 ? 0 : maxScore;
+    }
+
+    /** Оценка худшей из отобранных страниц, когда куча заполнена: страница с меньшей оценкой
+     * в лучшие уже не попадет
+     * @return {float} возвращает порог оценки либо минус бесконечность, пока куча не заполнена
+     */
+    public float getThreshold() {
+        return size < capacity || capacity == 0 ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /** Количество отобранных страниц */
+    public int size() {
+        return size;
+    }
+
+    /** Упорядочивание отобранных страниц от лучшей к худшей на месте; после вызова коллектор
+     * не принимает новых страниц
+     * @return {int} возвращает количество отобранных страниц, доступных через {@link #getPageId} и {@link #getScore}
+     */
+    public int sort() {
+        int count = size;
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            size = end;
+            siftDown(0);
+        }
+        size = count;
+        return count;
+    }
+
+    public int getPageId(int index) {
+        return pageIds[index];
+    }
+
+    public float getScore(int index) {
+        return scores[index];
+    }
+
+    /** Страница a хуже страницы b */
+    private static boolean isWorse(int pageA, float scoreA, int pageB, float scoreB) {
+        if (scoreA != scoreB) return scoreA < scoreB;
+        return pageA > pageB;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isWorse(pageIds[index], scores[index], pageIds[parent], scores[parent])) break;
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) return;
+            int worst = left;
+            int right = left + 1;
+            if (right < size && isWorse(pageIds[right], scores[right], pageIds[left], scores[left])) worst = right;
+            if (!isWorse(pageIds[worst], scores[worst], pageIds[index], scores[index])) return;
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int pageId = pageIds[a];
+        pageIds[a] = pageIds[b];
+        pageIds[b] = pageId;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,120 @@
+package searchengine.utils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Граница обхода сайта: нормализация ссылок, отсев ссылок на другие хосты и повторов,
+ * ограничение глубины обхода и количества страниц. Увиденные адреса хранятся только в виде
+ * 64-битных отпечатков */
+public class UrlFrontier {
+
+    private static final Set<String> SKIPPED_EXTENSIONS = Set.of(
+            "jpg", "jpeg", "png", "gif", "webp", "svg", "ico", "bmp", "tif", "tiff",
+            "pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx", "zip", "rar", "7z", "gz",
+            "mp3", "mp4", "avi", "mov", "webm", "css", "js", "xml", "json");
+
+    private final String host;
+    private final int maxDepth;
+    private final int maxPages;
+    private final boolean keepQuery;
+    private final FingerprintSet seen = new FingerprintSet();
+    private final AtomicInteger acceptedPages = new AtomicInteger();
+
+    public UrlFrontier(String siteUrl, int maxDepth, int maxPages, boolean keepQuery) {
+        this.host = normalizeHost(URI.create(siteUrl).getHost());
+        this.maxDepth = maxDepth;
+        this.maxPages = maxPages;
+        this.keepQuery = keepQuery;
+    }
+
+    /** Попытка добавить страницу в обход
+     * @param path {String} принимает параметр нормализованный путь к странице
+     * @param depth {int} принимает параметр глубина страницы от главной
+     * @return {boolean} true, если страница еще не встречалась и не превышены ограничения обхода
+     */
+    public boolean tryAdd(String path, int depth) {
+        if (depth > maxDepth) return false;
+        if (acceptedPages.get() >= maxPages) return false;
+        if (!seen.add(FingerprintSet.fingerprint(withoutTrailingSlash(path)))) return false;
+        return acceptedPages.incrementAndGet() <= maxPages;
+    }
+
+    /** Количество страниц, принятых в обход */
+    public int getAcceptedPages() {
+        return acceptedPages.get();
+    }
+
+    /** Нормализация абсолютной ссылки, найденной на странице сайта
+     * @param url {String} принимает параметр абсолютный адрес ссылки
+     * @return {String} возвращает путь к странице от корня сайта либо null, если ссылка не подлежит обходу
+     */
+    public String normalize(String url) {
+        URI uri;
+        try {
+            uri = new URI(url.trim()).normalize();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        String scheme = uri.getScheme();
+        if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))) return null;
+        if (uri.getHost() == null || !normalizeHost(uri.getHost()).equals(host)) return null;
+        String query = uri.getRawQuery();
+        if (query != null && !keepQuery) return null;
+        String path = normalizePath(uri.getRawPath());
+        if (hasSkippedExtension(path)) return null;
+        if (query != null && !query.isEmpty()) {
+            String[] params = query.split("&");
+            Arrays.sort(params);
+            path = path + "?" + String.join("&", params);
+        }
+        return path;
+    }
+
+    /** Нормализация пути к странице: ведущий слеш, без повторяющихся слешей и без фрагмента.
+     * Завершающий слеш сохраняется, так как по этому пути страница загружается
+     * @param path {String} принимает параметр путь к странице
+     * @return {String} возвращает нормализованный путь, для главной страницы "/"
+     */
+    public static String normalizePath(String path) {
+        if (path == null) return "/";
+        int fragment = path.indexOf('#');
+        if (fragment >= 0) path = path.substring(0, fragment);
+        path = path.replaceAll("/{2,}", "/");
+        if (!path.startsWith("/")) path = "/" + path;
+        return path;
+    }
+
+    /** Путь без завершающего слеша для отпечатка: /dir и /dir/ считаются одной страницей */
+    private static String withoutTrailingSlash(String path) {
+        int end = path.indexOf('?');
+        if (end < 0) end = path.length();
+        if (end <= 1 || path.charAt(end - 1) != '/') return path;
+        return path.substring(0, end - 1) + path.substring(end);
+    }
+
+    /** Получение адреса страницы по адресу сайта и пути к странице
+     * @param siteUrl {String} принимает параметр адрес сайта
+     * @param path {String} принимает параметр путь к странице от корня сайта
+     * @return {String} возвращает полный адрес страницы
+     */
+    public static String toUrl(String siteUrl, String path) {
+        String root = siteUrl.endsWith("/") ? siteUrl.substring(0, siteUrl.length() - 1) : siteUrl;
+        return root + (path.startsWith("/") ? path : "/" + path);
+    }
+
+    private static boolean hasSkippedExtension(String path) {
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || dot < path.lastIndexOf('/')) return false;
+        return SKIPPED_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    static String normalizeHost(String host) {
+        if (host == null) return "";
+        host = host.toLowerCase(Locale.ROOT);
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+}
@@ -0,0 +1,10 @@
+package searchengine.utils;
+
+import java.util.List;
+
+/** Класс хранения результата морфологического разбора словоформы
+ * @param normalForms все базовые формы слова
+ * @param lemmas базовые формы слова до первой формы, являющейся служебной частью речи
+ */
+public record WordForm(List<String> normalForms, List<String> lemmas) {
+}
@@ -0,0 +1,137 @@
+package searchengine.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import searchengine.utils.LemmaIndexBatch;
+import searchengine.utils.PageLemmas;
+import searchengine.utils.PageTokens;
+import searchengine.utils.SiteLemmaDictionary;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LemmaIndexJdbcRepositoryTest {
+
+    /** JdbcTemplate без базы: запоминает аргументы пакетных запросов по первым трем словам запроса */
+    private static final class RecordingJdbcTemplate extends JdbcTemplate {
+        private final Map<String, List<Object[]>> batches = new LinkedHashMap<>();
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            String[] words = sql.split(" ", 4);
+            batches.computeIfAbsent(words[0] + " " + words[1] + " " + words[2], key -> new ArrayList<>()).addAll(batchArgs);
+            return new int[batchArgs.size()];
+        }
+
+        List<Object[]> get(String statementStart) {
+            return batches.getOrDefault(statementStart, List.of());
+        }
+    }
+
+    /** Выборка id лемм без базы: новые леммы получают id по порядку начиная с 100 */
+    private static final class LemmaIdsTemplate extends NamedParameterJdbcTemplate {
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        LemmaIdsTemplate(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate);
+        }
+
+        @Override
+        public void query(String sql, SqlParameterSource paramSource, RowCallbackHandler rch) {
+            for (Object lemma : (List<?>) paramSource.getValue("lemmas")) {
+                int id = ids.computeIfAbsent((String) lemma, key -> 100 + ids.size());
+                try {
+                    rch.processRow(row(Map.of("lemma", lemma, "id", id)));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private static ResultSet row(Map<String, Object> values) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getString", "getInt" -> values.get((String) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static PageLemmas pageLemmas(String... lemmas) {
+        Map<String, Float> ranks = new LinkedHashMap<>();
+        for (String lemma : lemmas) {
+            ranks.put(lemma, 1f);
+        }
+        return new PageLemmas(PageTokens.ofOffsets(new byte[0]), ranks, lemmas.length);
+    }
+
+    @Test
+    void writeInsertsOnlyNewLemmasAndKeepsKnownFrequenciesInDictionary() {
+        RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+        LemmaIndexJdbcRepository repository = new LemmaIndexJdbcRepository(jdbcTemplate, new LemmaIdsTemplate(jdbcTemplate));
+        SiteLemmaDictionary dictionary = new SiteLemmaDictionary(1);
+        dictionary.put("дом", 7);
+        LemmaIndexBatch batch = new LemmaIndexBatch(1, 10, Duration.ofMinutes(1));
+        batch.add(11, pageLemmas("дом", "сад"));
+        batch.add(12, pageLemmas("дом"));
+
+        repository.write(batch, dictionary);
+
+        List<Object[]> insertedLemmas = jdbcTemplate.get("INSERT INTO lemma");
+        assertEquals(1, insertedLemmas.size());
+        assertEquals("сад", insertedLemmas.get(0)[1]);
+        assertEquals(1, insertedLemmas.get(0)[2]);
+        List<Object[]> indexes = jdbcTemplate.get("INSERT INTO `index`");
+        assertEquals(3, indexes.size());
+        for (Object[] index : indexes) {
+            assertTrue(index[1].equals(7) || index[1].equals(100));
+        }
+        assertEquals(100, dictionary.getId("сад"));
+        assertEquals(Map.of(7, 2), dictionary.getPendingFrequencies());
+    }
+
+    @Test
+    void writeFrequenciesWritesPendingDeltasAndClearsThem() {
+        RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+        LemmaIndexJdbcRepository repository = new LemmaIndexJdbcRepository(jdbcTemplate, new LemmaIdsTemplate(jdbcTemplate));
+        SiteLemmaDictionary dictionary = new SiteLemmaDictionary(1);
+        dictionary.addFrequency(7, 2);
+        dictionary.addFrequency(8, -1);
+        dictionary.addFrequency(9, 1);
+        dictionary.addFrequency(9, -1);
+
+        repository.writeFrequencies(dictionary);
+
+        List<Object[]> updates = jdbcTemplate.get("UPDATE lemma SET");
+        assertEquals(2, updates.size());
+        Map<Object, Object> deltas = new HashMap<>();
+        updates.forEach(update -> deltas.put(update[1], update[0]));
+        assertEquals(Map.of(7, 2, 8, -1), deltas);
+        assertTrue(dictionary.getPendingFrequencies().isEmpty());
+    }
+
+    @Test
+    void deleteIndexesDecrementsFrequencies() {
+        RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+        LemmaIndexJdbcRepository repository = new LemmaIndexJdbcRepository(jdbcTemplate, new LemmaIdsTemplate(jdbcTemplate));
+        SiteLemmaDictionary dictionary = new SiteLemmaDictionary(1);
+
+        repository.deleteIndexes(11, List.of(7, 8), dictionary);
+
+        assertEquals(2, jdbcTemplate.get("DELETE FROM `index`").size());
+        assertEquals(Map.of(7, -1, 8, -1), dictionary.getPendingFrequencies());
+    }
+}
@@ -0,0 +1,145 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import searchengine.config.SearchSettings;
+import searchengine.utils.PageMatchHandler;
+import searchengine.utils.PostingList;
+import searchengine.utils.SegmentWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexSearchBackendTest {
+
+    private static final int SITE_ID = 1;
+    private static final int PAGES = 200;
+
+    @TempDir
+    Path directory;
+
+    /** Обработчик с постоянным порогом; граница вклада слова равна его наибольшему рангу */
+    private static final class RecordingHandler implements PageMatchHandler {
+        private final float threshold;
+        private final List<Integer> accepted = new ArrayList<>();
+        private final List<Integer> skipped = new ArrayList<>();
+        private boolean estimated = false;
+
+        RecordingHandler(float threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void accept(int siteId, int pageId, float[] termFrequencies, int length) {
+            accepted.add(pageId);
+        }
+
+        @Override
+        public void skip(int siteId, int pageId) {
+            skipped.add(pageId);
+        }
+
+        @Override
+        public void markEstimated() {
+            estimated = true;
+        }
+
+        @Override
+        public float getThreshold() {
+            return threshold;
+        }
+
+        @Override
+        public float getUpperBound(int term, float maxFrequency) {
+            return maxFrequency;
+        }
+    }
+
+    /** Сегмент сайта: частое слово с рангом 1 на всех страницах, редкое слово с рангами 10 и 9 на страницах
+     * 50 и 150, среднее слово с рангом 3 на четных страницах */
+    private InvertedIndexSearchBackend openBackend() throws IOException {
+        PostingList.Builder common = new PostingList.Builder();
+        PostingList.Builder middle = new PostingList.Builder();
+        for (int page = 1; page <= PAGES; page++) {
+            common.add(page, 1);
+            if (page % 2 == 0) middle.add(page, 3);
+        }
+        PostingList.Builder rare = new PostingList.Builder();
+        rare.add(50, 10);
+        rare.add(150, 9);
+        try (SegmentWriter writer = new SegmentWriter(directory.resolve("site-" + SITE_ID + "-1.seg"), SITE_ID)) {
+            writer.addPostings("частое", common.build());
+            writer.addPostings("среднее", middle.build());
+            writer.addPostings("редкое", rare.build());
+            writer.finish();
+        }
+        SearchSettings settings = new SearchSettings();
+        settings.setIndexPath(directory.toString());
+        InvertedIndexSearchBackend backend = new InvertedIndexSearchBackend(null, null, settings);
+        backend.open();
+        return backend;
+    }
+
+    @Test
+    void anyMatchWithoutThresholdVisitsEveryPage() throws IOException {
+        InvertedIndexSearchBackend backend = openBackend();
+        RecordingHandler handler = new RecordingHandler(Float.NEGATIVE_INFINITY);
+        backend.match(List.of(SITE_ID), List.of(List.of("частое"), List.of("редкое")), 1, handler);
+        backend.close();
+        assertEquals(PAGES, handler.accepted.size());
+        assertTrue(handler.skipped.isEmpty());
+        assertFalse(handler.estimated);
+    }
+
+    @Test
+    void anyMatchSkipsPagesOfNonEssentialTerms() throws IOException {
+        InvertedIndexSearchBackend backend = openBackend();
+        RecordingHandler handler = new RecordingHandler(5);
+        backend.match(List.of(SITE_ID), List.of(List.of("частое"), List.of("редкое")), 1, handler);
+        backend.close();
+        assertEquals(List.of(50, 150), handler.accepted);
+        assertTrue(handler.skipped.isEmpty());
+        assertTrue(handler.estimated);
+    }
+
+    @Test
+    void anyMatchTakesCandidatesOnlyFromEssentialTerms() throws IOException {
+        InvertedIndexSearchBackend backend = openBackend();
+        RecordingHandler handler = new RecordingHandler(4);
+        backend.match(List.of(SITE_ID), List.of(List.of("частое"), List.of("среднее")), 1, handler);
+        RecordingHandler strict = new RecordingHandler(4.5f);
+        backend.match(List.of(SITE_ID), List.of(List.of("частое"), List.of("среднее")), 1, strict);
+        backend.close();
+        assertEquals(PAGES / 2, handler.accepted.size());
+        assertTrue(handler.accepted.stream().allMatch(page -> page % 2 == 0));
+        assertTrue(handler.estimated);
+        assertTrue(strict.accepted.isEmpty());
+        assertTrue(strict.estimated);
+    }
+
+    @Test
+    void allMatchSkipsBlocksAndCountsPagesBelowThreshold() throws IOException {
+        InvertedIndexSearchBackend backend = openBackend();
+        RecordingHandler blocks = new RecordingHandler(12);
+        backend.match(List.of(SITE_ID), List.of(List.of("частое"), List.of("среднее")), 2, blocks);
+        RecordingHandler pages = new RecordingHandler(10.5f);
+        backend.match(List.of(SITE_ID), List.of(List.of("частое"), List.of("редкое")), 2, pages);
+        RecordingHandler open = new RecordingHandler(Float.NEGATIVE_INFINITY);
+        backend.match(List.of(SITE_ID), List.of(List.of("частое"), List.of("редкое")), 2, open);
+        backend.close();
+        assertTrue(blocks.accepted.isEmpty());
+        assertTrue(blocks.skipped.isEmpty());
+        assertTrue(blocks.estimated);
+        assertEquals(List.of(50), pages.accepted);
+        assertEquals(List.of(150), pages.skipped);
+        assertFalse(pages.estimated);
+        assertEquals(List.of(50, 150), open.accepted);
+        assertFalse(open.estimated);
+    }
+}
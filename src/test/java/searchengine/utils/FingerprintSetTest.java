@@ -0,0 +1,76 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FingerprintSetTest {
+
+    @Test
+    void addReportsOnlyNewFingerprints() {
+        FingerprintSet set = new FingerprintSet();
+        assertTrue(set.add(17));
+        assertFalse(set.add(17));
+        assertTrue(set.contains(17));
+        assertFalse(set.contains(18));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void zeroFingerprintIsStored() {
+        FingerprintSet set = new FingerprintSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertTrue(set.contains(0));
+        assertFalse(set.add(0));
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        FingerprintSet set = new FingerprintSet();
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            assertTrue(set.add(FingerprintSet.fingerprint("https://site.ru/page/" + i)));
+        }
+        assertEquals(count, set.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(set.contains(FingerprintSet.fingerprint("https://site.ru/page/" + i)));
+        }
+        assertFalse(set.contains(FingerprintSet.fingerprint("https://site.ru/page/" + count)));
+    }
+
+    @Test
+    void fingerprintIsStableAndDistinguishesStrings() {
+        assertEquals(FingerprintSet.fingerprint("/news"), FingerprintSet.fingerprint(new StringBuilder("/news")));
+        assertNotEquals(FingerprintSet.fingerprint("/news"), FingerprintSet.fingerprint("/news/"));
+        assertNotEquals(FingerprintSet.fingerprint("ab"), FingerprintSet.fingerprint("ba"));
+    }
+
+    @Test
+    void concurrentAddsAcceptEachFingerprintOnce() throws InterruptedException {
+        FingerprintSet set = new FingerprintSet();
+        AtomicInteger added = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    if (set.add(FingerprintSet.fingerprint(Integer.toString(i)))) added.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(20_000, added.get());
+        assertEquals(20_000, set.size());
+    }
+}
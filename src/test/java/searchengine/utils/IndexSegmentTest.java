@@ -0,0 +1,88 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    private static PostingList postings(int... pagesAndRanks) {
+        PostingList.Builder builder = new PostingList.Builder();
+        for (int i = 0; i < pagesAndRanks.length; i += 2) {
+            builder.add(pagesAndRanks[i], pagesAndRanks[i + 1]);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void writeAndOpenSegment() throws IOException {
+        Path file = directory.resolve("site.seg");
+        try (SegmentWriter writer = new SegmentWriter(file, 42)) {
+            writer.addPostings("яблоко", postings(1, 2, 5, 1));
+            writer.addPostings("дом", postings(1, 3));
+            writer.addPostings("пустая", postings());
+            writer.addPage(9);
+            writer.addDeletedPage(3);
+            writer.finish();
+        }
+        assertFalse(Files.exists(directory.resolve("site.seg.tmp")));
+
+        IndexSegment segment = IndexSegment.open(file, 7);
+        assertEquals(7, segment.getGeneration());
+        assertEquals(42, segment.getSiteId());
+        assertEquals(2, segment.getLemmaCount());
+        assertEquals(4, segment.getPageCount());
+        assertEquals(6, segment.getTotalPageLength());
+        assertEquals(Files.size(file), segment.getSize());
+
+        assertEquals("дом", segment.getLemma(0));
+        assertEquals("яблоко", segment.getLemma(1));
+        assertNull(segment.getPostings("пустая"));
+        assertNull(segment.getPostings("груша"));
+
+        PostingList.Cursor cursor = segment.getPostings("яблоко").cursor();
+        assertTrue(cursor.next());
+        assertEquals(1, cursor.pageId());
+        assertEquals(2, cursor.rank());
+        assertTrue(cursor.next());
+        assertEquals(5, cursor.pageId());
+        assertFalse(cursor.next());
+
+        assertEquals(5, segment.getPageLength(1));
+        assertEquals(1, segment.getPageLength(5));
+        assertEquals(0, segment.getPageLength(9));
+        assertEquals(IndexSegment.DELETED_PAGE, segment.getPageLength(3));
+        assertEquals(IndexSegment.ABSENT_PAGE, segment.getPageLength(2));
+        assertTrue(segment.containsPage(3));
+        assertFalse(segment.containsPage(2));
+    }
+
+    @Test
+    void unfinishedSegmentLeavesNoFiles() throws IOException {
+        Path file = directory.resolve("unfinished.seg");
+        try (SegmentWriter writer = new SegmentWriter(file, 1)) {
+            writer.addPostings("дом", postings(1, 1));
+        }
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(directory.resolve("unfinished.seg.tmp")));
+    }
+
+    @Test
+    void openRejectsForeignFile() throws IOException {
+        Path file = directory.resolve("foreign.seg");
+        Files.write(file, new byte[IndexSegment.HEADER_SIZE]);
+        assertThrows(IOException.class, () -> IndexSegment.open(file, 1));
+    }
+}
@@ -0,0 +1,46 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PositionMatcherTest {
+
+    @Test
+    void findsPhraseWithConsecutiveWords() {
+        int[][] positions = {{2, 10, 20}, {5, 11, 30}, {12, 40}};
+        assertTrue(PositionMatcher.containsPhrase(positions, new int[]{0, 1, 2}));
+    }
+
+    @Test
+    void rejectsWordsOutOfPlace() {
+        int[][] positions = {{2, 10, 20}, {5, 12, 30}, {13, 40}};
+        assertFalse(PositionMatcher.containsPhrase(positions, new int[]{0, 1, 2}));
+    }
+
+    @Test
+    void respectsOffsetsOfSkippedWords() {
+        int[][] positions = {{3, 8}, {10}};
+        assertTrue(PositionMatcher.containsPhrase(positions, new int[]{0, 2}));
+        assertFalse(PositionMatcher.containsPhrase(positions, new int[]{0, 1}));
+    }
+
+    @Test
+    void sameWordTwiceInPhrase() {
+        int[] positions = {4, 7, 8};
+        assertTrue(PositionMatcher.containsPhrase(new int[][]{positions, positions}, new int[]{0, 1}));
+        assertFalse(PositionMatcher.containsPhrase(new int[][]{positions, positions, positions}, new int[]{0, 1, 2}));
+    }
+
+    @Test
+    void missingWordMeansNoPhrase() {
+        assertFalse(PositionMatcher.containsPhrase(new int[][]{{}, {1}}, new int[]{0, 1}));
+        assertFalse(PositionMatcher.containsPhrase(new int[][]{{1}, {}}, new int[]{0, 1}));
+    }
+
+    @Test
+    void singleWordPhrase() {
+        assertTrue(PositionMatcher.containsPhrase(new int[][]{{6}}, new int[]{0}));
+    }
+}
@@ -0,0 +1,168 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingListTest {
+
+    /** Список из count страниц с id 1, 1 + step, 1 + 2 * step...; ранг страницы равен ее номеру */
+    private static PostingList build(int count, int step) {
+        PostingList.Builder builder = new PostingList.Builder();
+        for (int i = 0; i < count; i++) {
+            builder.add(1 + i * step, i);
+        }
+        return builder.build();
+    }
+
+    private static PostingList roundTrip(PostingList list) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        list.writeTo(new DataOutputStream(bytes));
+        assertEquals(list.serializedSize(), bytes.size());
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.size() + 7);
+        buffer.position(7);
+        buffer.put(bytes.toByteArray());
+        return PostingList.read(buffer, 7);
+    }
+
+    @Test
+    void writeAndReadKeepsPagesAndRanks() throws IOException {
+        int count = PostingList.SKIP_INTERVAL * 3 + 5;
+        PostingList list = roundTrip(build(count, 300));
+        assertEquals(count, list.size());
+        assertEquals(count - 1, list.getMaxRank());
+        PostingList.Cursor cursor = list.cursor();
+        for (int i = 0; i < count; i++) {
+            assertTrue(cursor.next());
+            assertEquals(1 + i * 300, cursor.pageId());
+            assertEquals(i, cursor.rank());
+        }
+        assertFalse(cursor.next());
+        assertEquals(PostingList.NO_MORE_PAGES, cursor.pageId());
+    }
+
+    @Test
+    void emptyListRoundTrip() throws IOException {
+        PostingList list = roundTrip(new PostingList.Builder().build());
+        assertEquals(0, list.size());
+        assertFalse(list.cursor().next());
+        assertFalse(list.cursor().advance(1));
+    }
+
+    @Test
+    void builderRejectsPagesOutOfOrder() {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.add(5, 1);
+        assertThrows(IllegalArgumentException.class, () -> builder.add(5, 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(3, 1));
+    }
+
+    @Test
+    void advanceFindsFirstPageNotLessThanTarget() throws IOException {
+        int count = PostingList.SKIP_INTERVAL * 10;
+        PostingList list = roundTrip(build(count, 2));
+        for (int target = 0; target < 2 * count; target += 7) {
+            PostingList.Cursor cursor = list.cursor();
+            assertTrue(cursor.advance(target), "target " + target);
+            int expected = target <= 1 ? 1 : target % 2 == 1 ? target : target + 1;
+            assertEquals(expected, cursor.pageId(), "target " + target);
+            assertEquals((expected - 1) / 2, cursor.rank());
+        }
+    }
+
+    @Test
+    void advanceMovesOnlyForwardAndStopsAtEnd() {
+        int count = PostingList.SKIP_INTERVAL * 4;
+        PostingList list = build(count, 3);
+        PostingList.Cursor cursor = list.cursor();
+        assertTrue(cursor.advance(400));
+        assertEquals(400, cursor.pageId());
+        assertTrue(cursor.advance(10));
+        assertEquals(400, cursor.pageId());
+        assertTrue(cursor.next());
+        assertEquals(403, cursor.pageId());
+        assertTrue(cursor.advance(1 + (count - 1) * 3));
+        assertFalse(cursor.advance(2 + (count - 1) * 3));
+        assertEquals(PostingList.NO_MORE_PAGES, cursor.pageId());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void blockMaxRankIsStoredPerBlock() throws IOException {
+        int count = PostingList.SKIP_INTERVAL * 2 + 3;
+        PostingList list = roundTrip(build(count, 10));
+        PostingList.Cursor cursor = list.cursor();
+        assertEquals(0f, cursor.blockMaxRank(0));
+        assertEquals(0, cursor.blockEnd());
+        assertEquals(PostingList.SKIP_INTERVAL - 1, cursor.blockMaxRank(1));
+        assertEquals(PostingList.SKIP_INTERVAL * 10, cursor.blockEnd());
+        assertEquals(PostingList.SKIP_INTERVAL * 2 - 1, cursor.blockMaxRank(1 + PostingList.SKIP_INTERVAL * 10));
+        assertEquals(count - 1, cursor.blockMaxRank(1 + (count - 1) * 10));
+        assertEquals(PostingList.NO_MORE_PAGES - 1, cursor.blockEnd());
+    }
+
+    @Test
+    void cursorOverFormsMergesPagesAndKeepsMaxRank() {
+        PostingList.Builder first = new PostingList.Builder();
+        first.add(1, 1);
+        first.add(3, 5);
+        first.add(7, 2);
+        PostingList.Builder second = new PostingList.Builder();
+        second.add(2, 4);
+        second.add(3, 6);
+        second.add(7, 1);
+        second.add(200, 3);
+        PostingList.Cursor cursor = PostingList.cursor(List.of(first.build(), second.build(),
+                new PostingList.Builder().build()));
+
+        int[] pages = {1, 2, 3, 7, 200};
+        float[] ranks = {1, 4, 6, 2, 3};
+        for (int i = 0; i < pages.length; i++) {
+            assertTrue(cursor.next());
+            assertEquals(pages[i], cursor.pageId());
+            assertEquals(ranks[i], cursor.rank());
+        }
+        assertFalse(cursor.next());
+        assertEquals(PostingList.NO_MORE_PAGES, cursor.pageId());
+    }
+
+    @Test
+    void cursorOverFormsAdvancesAndBoundsBlocks() {
+        PostingList.Cursor cursor = PostingList.cursor(List.of(build(PostingList.SKIP_INTERVAL + 1, 2), build(3, 100)));
+        assertEquals(PostingList.SKIP_INTERVAL - 1, cursor.blockMaxRank(1));
+        assertEquals(PostingList.SKIP_INTERVAL * 2, cursor.blockEnd());
+        assertTrue(cursor.advance(100));
+        assertEquals(101, cursor.pageId());
+        assertEquals(50f, cursor.rank());
+        assertTrue(cursor.advance(101));
+        assertEquals(101, cursor.pageId());
+        assertTrue(cursor.advance(102));
+        assertEquals(103, cursor.pageId());
+        assertTrue(cursor.advance(128));
+        assertEquals(129, cursor.pageId());
+        assertEquals(PostingList.SKIP_INTERVAL, cursor.rank());
+        assertTrue(cursor.next());
+        assertEquals(201, cursor.pageId());
+        assertEquals(2f, cursor.rank());
+        assertFalse(cursor.advance(202));
+    }
+
+    @Test
+    void maxRankSurvivesRoundTrip() throws IOException {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.add(5, 2);
+        builder.add(9, 7.5f);
+        builder.add(11, 1);
+        assertEquals(7.5f, roundTrip(builder.build()).getMaxRank());
+        assertEquals(0f, roundTrip(new PostingList.Builder().build()).getMaxRank());
+    }
+}
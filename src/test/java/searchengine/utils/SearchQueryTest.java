@@ -0,0 +1,69 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.LemmatizerSettings;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchQueryTest {
+
+    /** Лемматизатор без английской морфологии: лемма латинского слова - само слово */
+    private static Lemmatizer lemmatizer() throws IOException {
+        LemmatizerSettings settings = new LemmatizerSettings();
+        settings.setEnglish(false);
+        return new Lemmatizer(settings);
+    }
+
+    @Test
+    void wordsBecomeTermsWithoutRepeats() throws IOException {
+        SearchQuery query = SearchQuery.parse("Alpha beta ALPHA gamma", null, lemmatizer());
+        assertEquals(List.of(List.of("alpha"), List.of("beta"), List.of("gamma")), query.getTerms());
+        assertEquals(3, query.getMinimumShouldMatch());
+        assertFalse(query.isPositional());
+    }
+
+    @Test
+    void minimumShouldMatchAcceptsCountAndPercent() throws IOException {
+        Lemmatizer lemmatizer = lemmatizer();
+        assertEquals(2, SearchQuery.parse("a b c d", "2", lemmatizer).getMinimumShouldMatch());
+        assertEquals(3, SearchQuery.parse("a b c d", "75%", lemmatizer).getMinimumShouldMatch());
+        assertEquals(1, SearchQuery.parse("a b c d", "0", lemmatizer).getMinimumShouldMatch());
+        assertEquals(4, SearchQuery.parse("a b c d", "10", lemmatizer).getMinimumShouldMatch());
+        assertEquals(4, SearchQuery.parse("a b c d", "много", lemmatizer).getMinimumShouldMatch());
+    }
+
+    @Test
+    void quotedWordsFormPhrase() throws IOException {
+        SearchQuery query = SearchQuery.parse("start \"alpha beta gamma\" end", null, lemmatizer());
+        assertTrue(query.isPositional());
+        assertEquals(List.of(List.of(new SearchQuery.PhraseTerm(1, 0), new SearchQuery.PhraseTerm(2, 1),
+                new SearchQuery.PhraseTerm(3, 2))), query.getPhrases());
+        assertEquals(5, query.getTerms().size());
+    }
+
+    @Test
+    void singleQuotedWordIsNotPhrase() throws IOException {
+        assertFalse(SearchQuery.parse("\"alpha\" beta", null, lemmatizer()).isPositional());
+    }
+
+    @Test
+    void nearOperatorLinksNeighbourWords() throws IOException {
+        SearchQuery query = SearchQuery.parse("alpha NEAR/3 beta near gamma", null, lemmatizer());
+        assertEquals(List.of(new SearchQuery.Near(0, 1, 3)), query.getNears());
+        assertEquals(List.of(List.of("alpha"), List.of("beta"), List.of("near"), List.of("gamma")), query.getTerms());
+    }
+
+    @Test
+    void operatorsKeyDoesNotDependOnWordOrder() throws IOException {
+        Lemmatizer lemmatizer = lemmatizer();
+        assertEquals(SearchQuery.parse("alpha beta", null, lemmatizer).getOperatorsKey(),
+                SearchQuery.parse("beta alpha", null, lemmatizer).getOperatorsKey());
+        assertFalse(SearchQuery.parse("\"alpha beta\"", null, lemmatizer).getOperatorsKey()
+                .equals(SearchQuery.parse("\"beta alpha\"", null, lemmatizer).getOperatorsKey()));
+    }
+}
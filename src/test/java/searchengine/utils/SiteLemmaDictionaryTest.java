@@ -0,0 +1,28 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SiteLemmaDictionaryTest {
+
+    @Test
+    void pendingFrequenciesStayUntilCommitted() {
+        SiteLemmaDictionary dictionary = new SiteLemmaDictionary(1);
+        dictionary.addFrequency(10, 2);
+        dictionary.addFrequency(20, -1);
+        Map<Integer, Integer> snapshot = dictionary.getPendingFrequencies();
+        assertEquals(Map.of(10, 2, 20, -1), snapshot);
+        assertEquals(snapshot, dictionary.getPendingFrequencies());
+
+        dictionary.addFrequency(10, 3);
+        dictionary.commitFrequencies(snapshot);
+        assertEquals(Map.of(10, 3), dictionary.getPendingFrequencies());
+
+        dictionary.commitFrequencies(dictionary.getPendingFrequencies());
+        assertTrue(dictionary.getPendingFrequencies().isEmpty());
+    }
+}
@@ -0,0 +1,69 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenizerTest {
+
+    private static List<String> words(Tokenizer tokenizer) {
+        List<String> words = new ArrayList<>();
+        while (tokenizer.next()) {
+            words.add(tokenizer.word());
+        }
+        return words;
+    }
+
+    @Test
+    void splitsTextIntoLowerCaseWords() {
+        assertEquals(List.of("ежик", "в", "тумане", "hedgehog", "in", "the", "fog"),
+                words(Tokenizer.ofText("Ёжик в ТУМАНЕ (Hedgehog-in-the-fog), 1975!")));
+    }
+
+    @Test
+    void scriptChangeSplitsWords() {
+        Tokenizer tokenizer = Tokenizer.ofText("javaпрограммист");
+        assertTrue(tokenizer.next());
+        assertEquals("java", tokenizer.word());
+        assertEquals(Tokenizer.Script.LATIN, tokenizer.script());
+        assertTrue(tokenizer.next());
+        assertEquals("программист", tokenizer.word());
+        assertEquals(Tokenizer.Script.CYRILLIC, tokenizer.script());
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    void reportsWordBoundaries() {
+        String text = "  Дом, милый дом";
+        Tokenizer tokenizer = Tokenizer.ofText(text);
+        assertTrue(tokenizer.next());
+        assertTrue(tokenizer.next());
+        assertEquals("милый", text.substring(tokenizer.start(), tokenizer.end()));
+        assertEquals(5, tokenizer.length());
+        assertTrue(tokenizer.is("милый"));
+        assertFalse(tokenizer.is("милая"));
+        assertTrue(tokenizer.next());
+        assertFalse(tokenizer.next());
+        assertEquals(-1, tokenizer.start());
+    }
+
+    @Test
+    void longWordsGrowBuffer() {
+        String word = "а".repeat(100);
+        Tokenizer tokenizer = Tokenizer.ofText(word + " б");
+        assertTrue(tokenizer.next());
+        assertEquals(word, tokenizer.word());
+        assertTrue(tokenizer.next());
+        assertEquals("б", tokenizer.word());
+    }
+
+    @Test
+    void nullTextHasNoWords() {
+        assertFalse(Tokenizer.ofText(null).next());
+    }
+}
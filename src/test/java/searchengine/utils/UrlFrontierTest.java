@@ -0,0 +1,49 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UrlFrontierTest {
+
+    @Test
+    void normalizeKeepsTrailingSlashOfFetchedPath() {
+        UrlFrontier frontier = new UrlFrontier("https://www.site.ru", 10, 100, true);
+        assertEquals("/dir/", frontier.normalize("https://site.ru//dir/#top"));
+        assertEquals("/dir", frontier.normalize("https://WWW.site.ru/dir"));
+        assertEquals("/", frontier.normalize("http://site.ru"));
+        assertEquals("/list?a=1&b=2", frontier.normalize("https://site.ru/list?b=2&a=1"));
+    }
+
+    @Test
+    void normalizeSkipsForeignHostsAndFiles() {
+        UrlFrontier frontier = new UrlFrontier("https://site.ru", 10, 100, false);
+        assertNull(frontier.normalize("https://other.ru/page"));
+        assertNull(frontier.normalize("mailto:info@site.ru"));
+        assertNull(frontier.normalize("https://site.ru/image.PNG"));
+        assertNull(frontier.normalize("https://site.ru/list?page=2"));
+    }
+
+    @Test
+    void trailingSlashVariantsAreOnePage() {
+        UrlFrontier frontier = new UrlFrontier("https://site.ru", 10, 100, true);
+        assertTrue(frontier.tryAdd("/dir/", 1));
+        assertFalse(frontier.tryAdd("/dir", 1));
+        assertTrue(frontier.tryAdd("/list?a=1", 1));
+        assertFalse(frontier.tryAdd("/list/?a=1", 1));
+        assertTrue(frontier.tryAdd("/", 0));
+        assertEquals(3, frontier.getAcceptedPages());
+    }
+
+    @Test
+    void limitsDepthAndPageCount() {
+        UrlFrontier frontier = new UrlFrontier("https://site.ru", 2, 2, false);
+        assertFalse(frontier.tryAdd("/deep", 3));
+        assertTrue(frontier.tryAdd("/a", 1));
+        assertTrue(frontier.tryAdd("/b", 2));
+        assertFalse(frontier.tryAdd("/c", 1));
+    }
+}